@@ -0,0 +1,108 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the calls of a {@link DAO} on an executor and returns their results as futures, so that several lookups
+ * can run at the same time instead of one after the other on the caller thread.
+ *
+ * The DAO is called from the executor threads concurrently, so it has to be safe to share between threads,
+ * like {@link allaboutecm.dataaccess.neo4j.PooledNeo4jDAO}.
+ */
+public class AsyncDAO implements AutoCloseable {
+    private final DAO dao;
+    private final Executor executor;
+
+    // shut down on close when this class created it
+    private final ExecutorService ownExecutor;
+
+    /**
+     * Runs the calls on virtual threads when the runtime has them, otherwise on a pool of maxThreads
+     * platform threads.
+     */
+    public AsyncDAO(DAO dao, int maxThreads) {
+        this(dao, defaultExecutor(maxThreads), true);
+    }
+
+    public AsyncDAO(DAO dao, Executor executor) {
+        this(dao, executor, false);
+    }
+
+    private AsyncDAO(DAO dao, Executor executor, boolean owned) {
+        if (null == dao) {
+            throw new NullPointerException("DAO cannot be null");
+        }
+        if (null == executor) {
+            throw new NullPointerException("Executor cannot be null");
+        }
+        this.dao = dao;
+        this.executor = executor;
+        this.ownExecutor = owned ? (ExecutorService) executor : null;
+    }
+
+    /**
+     * An executor starting one virtual thread per call, looked up by reflection so that this code also runs
+     * on runtimes without them. There, calls run on at most maxThreads daemon threads.
+     */
+    public static ExecutorService defaultExecutor(int maxThreads) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads should be more than 0");
+        }
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory threads = runnable -> {
+                Thread thread = new Thread(runnable, "async-dao-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newFixedThreadPool(maxThreads, threads);
+        }
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public <T extends Entity> CompletableFuture<T> load(Class<T> clazz, Long id) {
+        return CompletableFuture.supplyAsync(() -> dao.load(clazz, id), executor);
+    }
+
+    public <T extends Entity> CompletableFuture<Collection<T>> loadAll(Class<T> clazz) {
+        return CompletableFuture.supplyAsync(() -> dao.loadAll(clazz), executor);
+    }
+
+    public <T extends Entity> CompletableFuture<T> createOrUpdate(T entity) {
+        return CompletableFuture.supplyAsync(() -> dao.createOrUpdate(entity), executor);
+    }
+
+    public <T extends Entity> CompletableFuture<Void> delete(T entity) {
+        return CompletableFuture.runAsync(() -> dao.delete(entity), executor);
+    }
+
+    public CompletableFuture<Musician> findMusicianByName(String name) {
+        return CompletableFuture.supplyAsync(() -> dao.findMusicianByName(name), executor);
+    }
+
+    /**
+     * Shuts down the executor if it was created by this class. Calls already submitted still complete.
+     */
+    @Override
+    public void close() {
+        if (null != ownExecutor) {
+            ownExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianInstrument;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that caches the results of {@link #load(Class, Long)}, {@link #findMusicianByName(String)},
+ * {@link #findMusiciansByNames(Collection)} and {@link #loadAll(Class)} of another DAO, and forgets them when
+ * they are changed through it.
+ *
+ * Every cache keeps at most maximumSize entries, evicting the least recently used ones, and forgets an entry
+ * after the time to live, which bounds how stale an entry changed some other way can get. Saves invalidate the
+ * saved entities, the entities saved with them and the collections of their classes. Deletes invalidate the
+ * deleted entities, and a cascade delete every cached entity of the class it cascades to, since the store finds
+ * those. Queries the DAO answers inside the store are not cached.
+ */
+public class CachingDAO implements DAO {
+    private final DAO dao;
+
+    // by id, the ids of both backends are unique over all classes. Missing entities are cached as empty
+    private final Cache<Long, Optional<Entity>> entities;
+    private final Cache<String, Optional<Musician>> musiciansByName;
+    private final Cache<Class<?>, List<Entity>> collections;
+
+    public CachingDAO(DAO dao, long maximumSize, long timeToLive, TimeUnit unit) {
+        if (null == dao) {
+            throw new NullPointerException("DAO cannot be null");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache size should be more than 0");
+        }
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("Time to live should be more than 0");
+        }
+        this.dao = dao;
+        this.entities = CacheBuilder.newBuilder().maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, unit).recordStats().build();
+        this.musiciansByName = CacheBuilder.newBuilder().maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, unit).recordStats().build();
+        this.collections = CacheBuilder.newBuilder().maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, unit).recordStats().build();
+    }
+
+    /**
+     * Hits, misses and evictions of the three caches added up.
+     */
+    public CacheStats stats() {
+        return entities.stats().plus(musiciansByName.stats()).plus(collections.stats());
+    }
+
+    public CacheStats entityStats() {
+        return entities.stats();
+    }
+
+    public CacheStats musicianNameStats() {
+        return musiciansByName.stats();
+    }
+
+    public CacheStats collectionStats() {
+        return collections.stats();
+    }
+
+    /**
+     * Forgets everything cached, for when the store was changed without going through this DAO.
+     */
+    public void invalidateAll() {
+        entities.invalidateAll();
+        musiciansByName.invalidateAll();
+        collections.invalidateAll();
+    }
+
+    private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        if (null == id) {
+            return dao.load(clazz, id);
+        }
+        Optional<Entity> entity = get(entities, id, () -> Optional.ofNullable(dao.load(clazz, id)));
+        if (entity.isPresent() && !clazz.isInstance(entity.get())) {
+            // cached for another class, ask the DAO how it loads an id of the wrong class
+            return dao.load(clazz, id);
+        }
+        return clazz.cast(entity.orElse(null));
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        Set<Entity> saved = savedWith(Collections.singletonList(entity));
+        invalidateEntities(saved);
+        try {
+            return dao.createOrUpdate(entity);
+        } finally {
+            // saving gives new entities their id and merged ones the id of the stored entity
+            invalidateEntities(saved);
+        }
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        Set<Entity> saved = savedWith(entities);
+        invalidateEntities(saved);
+        try {
+            return dao.createOrUpdateAll(entities);
+        } finally {
+            invalidateEntities(saved);
+        }
+    }
+
+    private static Set<Entity> savedWith(Collection<? extends Entity> entities) {
+        Set<Entity> saved = Sets.newIdentityHashSet();
+        for (Entity entity : entities) {
+            saved.add(entity);
+            saved.addAll(Entities.related(entity));
+        }
+        return saved;
+    }
+
+    private void invalidateEntities(Collection<? extends Entity> changed) {
+        Set<Long> ids = Sets.newHashSet();
+        Set<Class<?>> classes = Sets.newHashSet();
+        for (Entity entity : changed) {
+            if (null != entity.getId()) {
+                ids.add(entity.getId());
+            }
+            classes.add(entity.getClass());
+            if (entity instanceof Musician) {
+                musiciansByName.invalidate(((Musician) entity).getName());
+            }
+        }
+        invalidate(ids, classes);
+    }
+
+    // the entities with the ids, the names of the musicians among them even when renamed, and the collections
+    private void invalidate(Set<Long> ids, Set<Class<?>> classes) {
+        entities.invalidateAll(ids);
+        for (Map.Entry<String, Optional<Musician>> entry : musiciansByName.asMap().entrySet()) {
+            Optional<Musician> musician = entry.getValue();
+            if (musician.isPresent() && ids.contains(musician.get().getId())) {
+                musiciansByName.invalidate(entry.getKey());
+            }
+        }
+        for (Class<?> clazz : Lists.newArrayList(collections.asMap().keySet())) {
+            for (Class<?> changed : classes) {
+                if (clazz.isAssignableFrom(changed)) {
+                    collections.invalidate(clazz);
+                }
+            }
+        }
+    }
+
+    // every cached entity of the class, when a cascade deletes some the caller did not name
+    private void invalidateClass(Class<?> clazz) {
+        Set<Long> ids = Sets.newHashSet();
+        for (Map.Entry<Long, Optional<Entity>> entry : entities.asMap().entrySet()) {
+            if (entry.getValue().isPresent() && clazz.isInstance(entry.getValue().get())) {
+                ids.add(entry.getKey());
+            }
+        }
+        invalidate(ids, Collections.singleton(clazz));
+    }
+
+    /**
+     * Unlike the other DAO, returns an unmodifiable list: it is the cached list, shared by every caller until the
+     * class changes. Copy it to change it.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        List<Entity> all = get(collections, clazz,
+                () -> Collections.unmodifiableList(Lists.newArrayList(dao.loadAll(clazz))));
+        // the list cached for clazz only holds entities of clazz
+        return (Collection<T>) all;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> fetchAll(FetchPlan<T> plan) {
+        return dao.fetchAll(plan);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        return dao.stream(clazz, pageSize);
+    }
+
+    @Override
+    public Projection project(Class<? extends Entity> clazz, String... properties) {
+        return dao.project(clazz, properties);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        try {
+            dao.delete(entity);
+        } finally {
+            invalidateEntities(Collections.singletonList(entity));
+        }
+    }
+
+    @Override
+    public <T extends Entity> void deleteAlbumInMusician(T entity) {
+        try {
+            dao.deleteAlbumInMusician(entity);
+        } finally {
+            invalidateEntities(Collections.singletonList(entity));
+            if (entity instanceof Musician) {
+                invalidateClass(Album.class);
+            }
+        }
+    }
+
+    @Override
+    public <T extends Entity> void deleteMusicianAndMusicianInstrumentAlsoBeDeleted(T entity) {
+        try {
+            dao.deleteMusicianAndMusicianInstrumentAlsoBeDeleted(entity);
+        } finally {
+            invalidateEntities(Collections.singletonList(entity));
+            if (entity instanceof Musician) {
+                invalidateClass(MusicianInstrument.class);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAlbumsInMusicians(Collection<Musician> musicians) {
+        try {
+            dao.deleteAlbumsInMusicians(musicians);
+        } finally {
+            invalidateEntities(musicians);
+            invalidateClass(Album.class);
+        }
+    }
+
+    @Override
+    public void deleteMusiciansAndMusicianInstruments(Collection<Musician> musicians) {
+        try {
+            dao.deleteMusiciansAndMusicianInstruments(musicians);
+        } finally {
+            invalidateEntities(musicians);
+            invalidateClass(MusicianInstrument.class);
+        }
+    }
+
+    @Override
+    public Musician findMusicianByName(String name) {
+        if (null == name) {
+            return dao.findMusicianByName(name);
+        }
+        return get(musiciansByName, name, () -> Optional.ofNullable(dao.findMusicianByName(name))).orElse(null);
+    }
+
+    /**
+     * Names cached by {@link #findMusicianByName(String)} are answered from the cache, the others are looked up
+     * in one call and cached.
+     */
+    @Override
+    public Map<String, Musician> findMusiciansByNames(Collection<String> names) {
+        Map<String, Optional<Musician>> results = Maps.newHashMap();
+        List<String> missing = Lists.newArrayList();
+        for (String name : names) {
+            if (null == name || results.containsKey(name)) {
+                continue;
+            }
+            Optional<Musician> cached = musiciansByName.getIfPresent(name);
+            if (null == cached) {
+                missing.add(name);
+            }
+            results.put(name, cached);
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Musician> found = dao.findMusiciansByNames(missing);
+            for (String name : missing) {
+                Optional<Musician> musician = Optional.ofNullable(found.get(name));
+                musiciansByName.put(name, musician);
+                results.put(name, musician);
+            }
+        }
+
+        Map<String, Musician> musicians = Maps.newLinkedHashMap();
+        for (String name : names) {
+            Optional<Musician> musician = null == name ? Optional.empty() : results.get(name);
+            if (musician.isPresent()) {
+                musicians.put(name, musician.get());
+            }
+        }
+        return musicians;
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNameIgnoreCase(String name) {
+        return dao.findMusiciansByNameIgnoreCase(name);
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNamePrefix(String prefix, int limit) {
+        return dao.findMusiciansByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Musician> findMostProlificMusicians(int k, int startYear, int endYear) {
+        return dao.findMostProlificMusicians(k, startYear, endYear);
+    }
+
+    @Override
+    public Map<Integer, Integer> countAlbumsByReleaseYear() {
+        return dao.countAlbumsByReleaseYear();
+    }
+}
@@ -4,19 +4,87 @@ import allaboutecm.model.Entity;
 import allaboutecm.model.Musician;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface DAO {
     <T extends Entity> T load(Class<T> clazz, Long id);
 
     <T extends Entity> T createOrUpdate(T entity);
 
+    /**
+     * Creates or updates every entity like {@link #createOrUpdate(Entity)} does, but looks up the existing
+     * entities and writes them in batches instead of one by one.
+     */
+    <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities);
+
     <T extends Entity> Collection<T> loadAll(Class<T> clazz);
 
+    /**
+     * Loads every entity of the plan's root type with the relationships the plan names, and the entities at
+     * their other end, in one query. Relationships the plan does not name are left as they are.
+     */
+    <T extends Entity> Collection<T> fetchAll(FetchPlan<T> plan);
+
+    /**
+     * Returns the same entities as {@link #loadAll(Class)} in ascending id order, loaded lazily pageSize at a
+     * time while the stream is consumed. Earlier pages are released, so memory does not grow with the number
+     * of entities unless the caller keeps them. Close a stream not consumed to its end to release its last page.
+     */
+    <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize);
+
+    /**
+     * Reads the numeric properties of every entity of the type in ascending id order without loading the
+     * entities, see {@link Projection}.
+     */
+    Projection project(Class<? extends Entity> clazz, String... properties);
+
     <T extends Entity> void delete(T entity);
 
     <T extends Entity> void deleteAlbumInMusician(T entity);
 
     <T extends Entity> void deleteMusicianAndMusicianInstrumentAlsoBeDeleted(T entity);
 
+    /**
+     * Deletes the musicians, found by name, with their albums in one transaction. The albums the given
+     * musicians hold are deleted too, even when that relationship was never saved.
+     */
+    void deleteAlbumsInMusicians(Collection<Musician> musicians);
+
+    /**
+     * Deletes the musicians, found by name, with the MusicianInstruments that refer to them in one transaction.
+     */
+    void deleteMusiciansAndMusicianInstruments(Collection<Musician> musicians);
+
     Musician findMusicianByName(String name);
+
+    /**
+     * Finds the musicians with exactly the given names in one lookup, keyed by name in the order of the names.
+     * Names no musician has are left out.
+     */
+    Map<String, Musician> findMusiciansByNames(Collection<String> names);
+
+    /**
+     * Finds the musicians whose name is the given one ignoring case, ordered by name.
+     */
+    List<Musician> findMusiciansByNameIgnoreCase(String name);
+
+    /**
+     * Finds up to limit musicians whose name starts with the prefix ignoring case, ordered by name ignoring
+     * case and then by name.
+     */
+    List<Musician> findMusiciansByNamePrefix(String prefix, int limit);
+
+    /**
+     * Counts the albums of every musician released in [startYear, endYear] inside the store and returns
+     * the k musicians with the most albums, ordered by album count and then by name.
+     * When startYear/endYear is not positive, that bound is ignored.
+     */
+    List<Musician> findMostProlificMusicians(int k, int startYear, int endYear);
+
+    /**
+     * Counts the albums released in every year inside the store, years without albums are left out.
+     */
+    Map<Integer, Integer> countAlbumsByReleaseYear();
 }
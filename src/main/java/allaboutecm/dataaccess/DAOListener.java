@@ -0,0 +1,23 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Entity;
+
+/**
+ * Receives the changes a DAO made to the store, after they have been written.
+ *
+ * Only the entity passed to the DAO is notified, listeners that care about the entities saved with it
+ * (for example the albums of a saved musician) have to walk its relationships themselves. Cascade deletes
+ * notify every entity they delete, the entities the caller did not hold only carry their id.
+ */
+public interface DAOListener {
+    void saved(Entity entity);
+
+    void deleted(Entity entity);
+
+    /**
+     * Called after every batch written by {@link DAO#createOrUpdateAll(java.util.Collection)}, once its entities
+     * have been notified, with the number of entities and the time taken to resolve and write them.
+     */
+    default void batchSaved(int entities, long elapsedNanos) {
+    }
+}
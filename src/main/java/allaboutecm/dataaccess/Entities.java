@@ -0,0 +1,67 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.MusicalInstrument;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianInstrument;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * How the DAOs identify entities by value and which entities they save together, so that every backend
+ * stores the same graph for the same calls.
+ */
+public final class Entities {
+    private Entities() {
+    }
+
+    /**
+     * The class of the entity followed by the properties that identify it: name, record number and release
+     * year for an Album, the name for a Musician or a MusicalInstrument. Null for a MusicianInstrument, which
+     * is only identified by its relationships.
+     */
+    public static List<Object> naturalKey(Entity entity) {
+        Class<? extends Entity> clazz = entity.getClass();
+        if (clazz.equals(Album.class)) {
+            Album album = (Album) entity;
+            return Arrays.asList(clazz, album.getAlbumName(), album.getRecordNumber(), album.getReleaseYear());
+        } else if (clazz.equals(Musician.class)) {
+            return Arrays.asList(clazz, ((Musician) entity).getName());
+        } else if (clazz.equals(MusicalInstrument.class)) {
+            return Arrays.asList(clazz, ((MusicalInstrument) entity).getName());
+        }
+        return null;
+    }
+
+    /**
+     * The entities at the end of the outgoing relationships of the entity, which are saved with it.
+     */
+    public static List<Entity> related(Entity entity) {
+        List<Entity> related = Lists.newArrayList();
+        if (entity instanceof Musician) {
+            addAll(related, ((Musician) entity).getAlbums());
+        } else if (entity instanceof Album) {
+            Album album = (Album) entity;
+            addAll(related, album.getFeaturedMusicians());
+            addAll(related, album.getMusicianGroup());
+            addAll(related, album.getInstruments());
+        } else if (entity instanceof MusicianInstrument) {
+            MusicianInstrument musicianInstrument = (MusicianInstrument) entity;
+            if (null != musicianInstrument.getMusician()) {
+                related.add(musicianInstrument.getMusician());
+            }
+            addAll(related, musicianInstrument.getMusicalInstruments());
+        }
+        return related;
+    }
+
+    private static void addAll(List<Entity> related, Collection<? extends Entity> entities) {
+        if (null != entities) {
+            related.addAll(entities);
+        }
+    }
+}
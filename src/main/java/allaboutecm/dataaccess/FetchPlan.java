@@ -0,0 +1,61 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianInstrument;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * The relationships to load with the entities of a type, so that a query gets the part of the graph it
+ * needs in one round trip instead of loading every relationship or each one on its own.
+ * Relationships are named by their relationship type, which is the field name in the model.
+ */
+public final class FetchPlan<T extends Entity> {
+    public static final FetchPlan<Musician> MUSICIAN_ALBUMS =
+            new FetchPlan<>("musicianAlbums", Musician.class, "albums");
+
+    public static final FetchPlan<Album> ALBUM_FEATURED_MUSICIANS =
+            new FetchPlan<>("albumFeaturedMusicians", Album.class, "featuredMusicians");
+
+    public static final FetchPlan<MusicianInstrument> MUSICIAN_INSTRUMENTS =
+            new FetchPlan<>("musicianInstruments", MusicianInstrument.class, "musician", "musicalInstruments");
+
+    private final String name;
+    private final Class<T> rootClass;
+    private final List<String> relationships;
+
+    public FetchPlan(String name, Class<T> rootClass, String... relationships) {
+        if (null == name || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Fetch plan name cannot be empty");
+        }
+        if (null == rootClass) {
+            throw new NullPointerException("Root class cannot be null");
+        }
+        this.name = name;
+        this.rootClass = rootClass;
+        this.relationships = ImmutableList.copyOf(relationships);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getRootClass() {
+        return rootClass;
+    }
+
+    /**
+     * Outgoing relationships of the root entities to load, empty when only the root entities are loaded.
+     */
+    public List<String> getRelationships() {
+        return relationships;
+    }
+
+    @Override
+    public String toString() {
+        return name + relationships;
+    }
+}
@@ -0,0 +1,201 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Ids of the stored musicians by name, for exact, case-insensitive and prefix lookups without asking the store.
+ *
+ * Exact names are looked up in a hash map. For the other lookups the names are also kept in a skip list ordered by
+ * folded name and then by name, so that the names equal to or starting with a folded name are a range that starts
+ * at the first key not less than it. A change only updates its own entries, and lookups never wait for changes.
+ *
+ * Names are folded with {@link String#toLowerCase(Locale)} in {@link Locale#ROOT}. Cypher's toLower uses the
+ * default locale of the JVM running the store, which differs from it only for Turkish, Azeri and Lithuanian. For
+ * ASCII letters only the first two differ, where "I" becomes a dotless "ı". Musician names only have ASCII
+ * letters, so on a store with another locale
+ * the lookups of {@link allaboutecm.dataaccess.neo4j.Neo4jDAO} find the same musicians with and without the index.
+ * The names looked up are folded here in both cases, non-ASCII letters included.
+ *
+ * As a {@link DAOListener} it follows the musicians saved and deleted through a DAO, including the musicians
+ * saved with an album or a MusicianInstrument.
+ */
+public class MusicianNameIndex implements DAOListener {
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Key, Long> idsByFoldedName = new ConcurrentSkipListMap<>();
+
+    // guarded by this, which serializes the changes
+    private final Map<Long, String> namesById = Maps.newHashMap();
+
+    /**
+     * A name with its folded form, ordered by folded name and then by name.
+     */
+    private static final class Key implements Comparable<Key> {
+        private final String folded;
+        private final String name;
+
+        private Key(String folded, String name) {
+            this.folded = folded;
+            this.name = name;
+        }
+
+        private static Key of(String name) {
+            return new Key(fold(name), name);
+        }
+
+        // not greater than any key with the folded name
+        private static Key first(String folded) {
+            return new Key(folded, "");
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int compared = folded.compareTo(other.folded);
+            return 0 != compared ? compared : name.compareTo(other.name);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && 0 == compareTo((Key) o);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * folded.hashCode() + name.hashCode();
+        }
+    }
+
+    /**
+     * The form names are compared in when case is ignored.
+     */
+    public static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indexes the musician with the id under the name, forgetting the name it had before.
+     */
+    public synchronized void put(long id, String name) {
+        if (null == name) {
+            remove(id);
+            return;
+        }
+        String previous = namesById.put(id, name);
+        if (name.equals(previous)) {
+            return;
+        }
+        if (null != previous) {
+            idsByName.remove(previous, id);
+            idsByFoldedName.remove(Key.of(previous), id);
+        }
+        idsByName.put(name, id);
+        idsByFoldedName.put(Key.of(name), id);
+    }
+
+    public synchronized void remove(long id) {
+        String name = namesById.remove(id);
+        if (null != name) {
+            idsByName.remove(name, id);
+            idsByFoldedName.remove(Key.of(name), id);
+        }
+    }
+
+    public synchronized void clear() {
+        namesById.clear();
+        idsByName.clear();
+        idsByFoldedName.clear();
+    }
+
+    public synchronized int size() {
+        return namesById.size();
+    }
+
+    /**
+     * Returns the id of the musician with exactly the name, or null when there is none.
+     */
+    public Long get(String name) {
+        return null == name ? null : idsByName.get(name);
+    }
+
+    /**
+     * Returns the ids of the given names that have a musician, keyed by name in the order of the names.
+     */
+    public Map<String, Long> getAll(Collection<String> names) {
+        Map<String, Long> ids = Maps.newLinkedHashMap();
+        for (String name : names) {
+            Long id = get(name);
+            if (null != id) {
+                ids.put(name, id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the ids of the musicians whose name is the given one ignoring case, ordered by name.
+     */
+    public List<Long> getIgnoreCase(String name) {
+        if (null == name) {
+            return Collections.emptyList();
+        }
+        String folded = fold(name);
+        List<Long> ids = Lists.newArrayList();
+        for (Map.Entry<Key, Long> entry : idsByFoldedName.tailMap(Key.first(folded)).entrySet()) {
+            if (!entry.getKey().folded.equals(folded)) {
+                break;
+            }
+            ids.add(entry.getValue());
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the ids of up to limit musicians whose name starts with the prefix ignoring case, ordered by
+     * name ignoring case and then by name.
+     */
+    public List<Long> startingWith(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit should be more than 0");
+        }
+        String folded = fold(prefix);
+        List<Long> ids = Lists.newArrayList();
+        for (Map.Entry<Key, Long> entry : idsByFoldedName.tailMap(Key.first(folded)).entrySet()) {
+            if (ids.size() == limit || !entry.getKey().folded.startsWith(folded)) {
+                break;
+            }
+            ids.add(entry.getValue());
+        }
+        return ids;
+    }
+
+    @Override
+    public void saved(Entity entity) {
+        index(entity);
+        for (Entity related : Entities.related(entity)) {
+            index(related);
+        }
+    }
+
+    private void index(Entity entity) {
+        if (entity instanceof Musician && null != entity.getId()) {
+            put(entity.getId(), ((Musician) entity).getName());
+        }
+    }
+
+    @Override
+    public void deleted(Entity entity) {
+        if (entity instanceof Musician && null != entity.getId()) {
+            remove(entity.getId());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package allaboutecm.dataaccess;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * Numeric properties of every entity of a type, one array per property, without mapping any entity.
+ * Row i holds the id of the i-th entity and its values, a property the entity does not have is NaN.
+ */
+public final class Projection {
+    private final long[] ids;
+    private final Map<String, double[]> columns;
+
+    public Projection(long[] ids, Map<String, double[]> columns) {
+        for (Map.Entry<String, double[]> column : columns.entrySet()) {
+            if (column.getValue().length != ids.length) {
+                throw new IllegalArgumentException("Column " + column.getKey() + " should have one value per id");
+            }
+        }
+        this.ids = ids;
+        this.columns = ImmutableMap.copyOf(columns);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Returns the value of the property in the row, NaN when the entity does not have it.
+     */
+    public double getValue(String property, int row) {
+        return column(property)[row];
+    }
+
+    public boolean isMissing(String property, int row) {
+        return Double.isNaN(getValue(property, row));
+    }
+
+    /**
+     * Returns the values of the property in row order. The array is shared, it should not be modified.
+     */
+    public double[] column(String property) {
+        double[] column = columns.get(property);
+        if (null == column) {
+            throw new IllegalArgumentException("Property " + property + " was not projected");
+        }
+        return column;
+    }
+}
@@ -0,0 +1,369 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that buffers {@link #createOrUpdate(Entity)} and writes the buffer to another DAO in batches with
+ * {@link DAO#createOrUpdateAll(Collection)}. Updates of one entity made before it is written are coalesced into one
+ * write, the entity is identified by its id, or by its natural key before it has one.
+ *
+ * The buffer holds at most batchSize entities, and every flush interval it is written in the background. A save
+ * that would go over batchSize writes the buffer first on the saving thread, waiting for a flush already running,
+ * and fails without being buffered if that write fails. Entities stay in the buffer until they are in the store,
+ * so a store that keeps failing makes saves fail rather than the buffer grow.
+ * {@link #flush()} and {@link #close()} return once everything buffered before them is written.
+ * Deletes write the buffer first, so they are applied after the saves made before them. Reads go to the other DAO
+ * directly and do not see the saves still buffered, for up to one flush interval.
+ */
+public class WriteBehindDAO implements DAO, AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(WriteBehindDAO.class);
+
+    private final DAO dao;
+    private final int batchSize;
+
+    // guards pending, sequence and closed. Entities being written stay in pending until the write succeeds
+    private final Object lock = new Object();
+    private final LinkedHashMap<Object, PendingSave> pending = Maps.newLinkedHashMap();
+    private long sequence;
+    private boolean closed;
+
+    // one flush at a time, so that batches are written in the order they were buffered
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final ScheduledExecutorService scheduler;
+    private final List<WriteBehindListener> listeners = new CopyOnWriteArrayList<>();
+
+    private long buffered;
+    private long coalesced;
+    private long flushes;
+
+    /**
+     * @param flushInterval how often the buffer is written in the background, never when it is 0.
+     */
+    public WriteBehindDAO(DAO dao, int batchSize, long flushInterval, TimeUnit unit) {
+        if (null == dao) {
+            throw new NullPointerException("DAO cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size should be more than 0");
+        }
+        if (flushInterval < 0) {
+            throw new IllegalArgumentException("Flush interval should not be negative");
+        }
+        this.dao = dao;
+        this.batchSize = batchSize;
+        if (flushInterval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "write-behind-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::flushInBackground, flushInterval, flushInterval, unit);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public void addListener(WriteBehindListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(WriteBehindListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Number of entities buffered and not written yet.
+     */
+    public int getPending() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Number of saves accepted so far.
+     */
+    public long getBuffered() {
+        synchronized (lock) {
+            return buffered;
+        }
+    }
+
+    /**
+     * Number of saves that replaced a save of the same entity still buffered.
+     */
+    public long getCoalesced() {
+        synchronized (lock) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Number of batches written so far.
+     */
+    public long getFlushes() {
+        synchronized (lock) {
+            return flushes;
+        }
+    }
+
+    private static Object bufferKey(Entity entity) {
+        if (null != entity.getId()) {
+            return Arrays.asList(Entity.class, entity.getId());
+        }
+        List<Object> naturalKey = Entities.naturalKey(entity);
+        if (null != naturalKey && !naturalKey.contains(null)) {
+            return naturalKey;
+        }
+        // only the same object is coalesced
+        return new IdentityKey(entity);
+    }
+
+    private static final class IdentityKey {
+        private final Entity entity;
+
+        private IdentityKey(Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).entity == entity;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(entity);
+        }
+    }
+
+    // a buffered save, the sequence tells it from a later save of the same object
+    private static final class PendingSave {
+        private final Entity entity;
+        private final long sequence;
+
+        private PendingSave(Entity entity, long sequence) {
+            this.entity = entity;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Buffers the entity and returns it. An entity saved for the first time only gets its id once it is written.
+     *
+     * @throws RuntimeException what the other DAO threw when the buffer was full and could not be written, the
+     * entity is not buffered.
+     */
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        Object key = bufferKey(entity);
+        while (true) {
+            synchronized (lock) {
+                if (closed) {
+                    throw new IllegalStateException("Write-behind DAO is closed");
+                }
+                // a coalesced entity keeps its place in the buffer and does not need room
+                if (pending.containsKey(key) || pending.size() < batchSize) {
+                    if (null != pending.put(key, new PendingSave(entity, ++sequence))) {
+                        coalesced++;
+                    }
+                    buffered++;
+                    break;
+                }
+            }
+            // the buffer is full, it is written before the entity goes in
+            flush();
+        }
+        for (WriteBehindListener listener : listeners) {
+            listener.buffered(entity);
+        }
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        for (T entity : entities) {
+            createOrUpdate(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Writes everything buffered so far and returns once it is in the store.
+     *
+     * @throws RuntimeException what the other DAO threw, the batch stays in the buffer.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Object> keys;
+            List<PendingSave> saves;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                // the keys are taken now, an entity written for the first time has another key once it has an id
+                keys = Lists.newArrayList(pending.keySet());
+                saves = Lists.newArrayList(pending.values());
+            }
+            List<Entity> batch = Lists.newArrayListWithCapacity(saves.size());
+            for (PendingSave save : saves) {
+                batch.add(save.entity);
+            }
+            try {
+                dao.createOrUpdateAll(batch);
+            } catch (RuntimeException e) {
+                for (WriteBehindListener listener : listeners) {
+                    listener.failed(batch, e);
+                }
+                throw e;
+            }
+            synchronized (lock) {
+                for (int i = 0; i < keys.size(); i++) {
+                    // an entity saved again while it was written stays buffered with the newer save, even when
+                    // the same object was changed and saved again, as the write may have missed the change
+                    PendingSave save = pending.get(keys.get(i));
+                    if (null != save && save.sequence == saves.get(i).sequence) {
+                        pending.remove(keys.get(i));
+                    }
+                }
+                flushes++;
+            }
+            for (WriteBehindListener listener : listeners) {
+                listener.flushed(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Writing the buffered entities failed, they are retried on the next flush", e);
+        }
+    }
+
+    /**
+     * Stops the background flushes and writes what is still buffered. Saves are refused afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        if (null != scheduler) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return dao.load(clazz, id);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return dao.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> fetchAll(FetchPlan<T> plan) {
+        return dao.fetchAll(plan);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        return dao.stream(clazz, pageSize);
+    }
+
+    @Override
+    public Projection project(Class<? extends Entity> clazz, String... properties) {
+        return dao.project(clazz, properties);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        flush();
+        dao.delete(entity);
+    }
+
+    @Override
+    public <T extends Entity> void deleteAlbumInMusician(T entity) {
+        flush();
+        dao.deleteAlbumInMusician(entity);
+    }
+
+    @Override
+    public <T extends Entity> void deleteMusicianAndMusicianInstrumentAlsoBeDeleted(T entity) {
+        flush();
+        dao.deleteMusicianAndMusicianInstrumentAlsoBeDeleted(entity);
+    }
+
+    @Override
+    public void deleteAlbumsInMusicians(Collection<Musician> musicians) {
+        flush();
+        dao.deleteAlbumsInMusicians(musicians);
+    }
+
+    @Override
+    public void deleteMusiciansAndMusicianInstruments(Collection<Musician> musicians) {
+        flush();
+        dao.deleteMusiciansAndMusicianInstruments(musicians);
+    }
+
+    @Override
+    public Musician findMusicianByName(String name) {
+        return dao.findMusicianByName(name);
+    }
+
+    @Override
+    public Map<String, Musician> findMusiciansByNames(Collection<String> names) {
+        return dao.findMusiciansByNames(names);
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNameIgnoreCase(String name) {
+        return dao.findMusiciansByNameIgnoreCase(name);
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNamePrefix(String prefix, int limit) {
+        return dao.findMusiciansByNamePrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Musician> findMostProlificMusicians(int k, int startYear, int endYear) {
+        return dao.findMostProlificMusicians(k, startYear, endYear);
+    }
+
+    @Override
+    public Map<Integer, Integer> countAlbumsByReleaseYear() {
+        return dao.countAlbumsByReleaseYear();
+    }
+}
@@ -0,0 +1,29 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Entity;
+
+import java.util.List;
+
+/**
+ * Hooks of a {@link WriteBehindDAO}, for example to append every accepted write to a log before it is
+ * acknowledged and to trim that log once the write reached the store.
+ */
+public interface WriteBehindListener {
+    /**
+     * Called on the writing thread once the entity is in the buffer, before createOrUpdate returns.
+     */
+    default void buffered(Entity entity) {
+    }
+
+    /**
+     * Called after a batch was written to the store.
+     */
+    default void flushed(List<Entity> batch) {
+    }
+
+    /**
+     * Called when writing a batch failed. Its entities stay in the buffer, replaced by the saves made since.
+     */
+    default void failed(List<Entity> batch, RuntimeException e) {
+    }
+}
@@ -0,0 +1,574 @@
+package allaboutecm.dataaccess.memory;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.Entities;
+import allaboutecm.dataaccess.FetchPlan;
+import allaboutecm.dataaccess.MusicianNameIndex;
+import allaboutecm.dataaccess.Projection;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianInstrument;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.neo4j.ogm.annotation.Property;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} keeping the entities in memory, with the same results as {@link allaboutecm.dataaccess.neo4j.Neo4jDAO}
+ * for the same calls but without transactions or mapping.
+ *
+ * Ids are handed out in order and never reused, so the entities sit in an array indexed by id and the ids of each
+ * class in a bit set. Entities with a natural key (see {@link Entities#naturalKey(Entity)}) are also found through
+ * a hash index on it, saving one merges it with the stored entity of the same key, and a stored entity renamed to
+ * the key of another one moves onto it and leaves its own id empty. An entity cannot be saved with the id of an
+ * entity of another class. The names of the musicians are
+ * also kept in a {@link MusicianNameIndex} for the lookups ignoring case. Like a session, the stored
+ * entities are the objects that were saved, with the relationships they hold.
+ *
+ * Reads can run concurrently, writes are serialized with a read-write lock.
+ */
+public class InMemoryDAO implements DAO {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // indexed by id, null once deleted
+    private final List<Entity> entities = Lists.newArrayList();
+    private final List<List<Object>> keys = Lists.newArrayList();
+
+    private final Map<Class<?>, BitSet> idsByClass = Maps.newHashMap();
+    private final Map<List<Object>, Long> idsByKey = Maps.newHashMap();
+    private final MusicianNameIndex nameIndex = new MusicianNameIndex();
+
+    private final List<DAOListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a listener notified after every save and delete made through this DAO.
+     */
+    public void addListener(DAOListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(DAOListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Number of entities stored.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            int size = 0;
+            for (BitSet ids : idsByClass.values()) {
+                size += ids.cardinality();
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        lock.readLock().lock();
+        try {
+            Entity entity = stored(id);
+            return clazz.isInstance(entity) ? clazz.cast(entity) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        lock.writeLock().lock();
+        try {
+            save(entity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (DAOListener listener : listeners) {
+            listener.saved(entity);
+        }
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            for (T entity : entities) {
+                save(entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (T entity : entities) {
+            for (DAOListener listener : listeners) {
+                listener.saved(entity);
+            }
+        }
+        // nothing is written in batches here, the whole call is reported as one
+        if (!entities.isEmpty()) {
+            for (DAOListener listener : listeners) {
+                listener.batchSaved(entities.size(), elapsed);
+            }
+        }
+        return entities;
+    }
+
+    // stores the entity and the entities it relates to, like a save at depth 1
+    private void save(Entity entity) {
+        store(entity);
+        for (Entity related : Entities.related(entity)) {
+            store(related);
+        }
+    }
+
+    private void store(Entity entity) {
+        List<Object> key = Entities.naturalKey(entity);
+        if (null != key && key.contains(null)) {
+            key = null;
+        }
+        Long own = entity.getId();
+        Long target = own;
+        if (null != key) {
+            // a saved entity keeps its own id unless another entity already has its key
+            Long existing = idsByKey.get(key);
+            if (null != existing) {
+                target = existing;
+            }
+        }
+        Entity previous = stored(target);
+        if (null != previous && previous.getClass() != entity.getClass()) {
+            throw new IllegalArgumentException("Id " + target + " belongs to a " + previous.getClass().getSimpleName()
+                    + ", not a " + entity.getClass().getSimpleName());
+        }
+        if (!Objects.equals(target, own) && stored(own) == entity) {
+            // the entity moves onto the entity with its key, the slot it had is emptied
+            remove(own);
+        }
+        entity.setId(target);
+        if (null == previous) {
+            entity.setId((long) entities.size());
+            entities.add(null);
+            keys.add(null);
+        }
+        int id = entity.getId().intValue();
+
+        previous = entities.set(id, entity);
+        idsByClass.computeIfAbsent(entity.getClass(), clazz -> new BitSet()).set(id);
+
+        List<Object> previousKey = keys.set(id, key);
+        if (null != previousKey && !previousKey.equals(key)) {
+            idsByKey.remove(previousKey);
+        }
+        if (null != key) {
+            idsByKey.put(key, entity.getId());
+        }
+        if (entity instanceof Musician) {
+            nameIndex.put(entity.getId(), ((Musician) entity).getName());
+        } else if (previous instanceof Musician) {
+            nameIndex.remove(entity.getId());
+        }
+    }
+
+    private Entity stored(Long id) {
+        if (null == id || id < 0 || id >= entities.size()) {
+            return null;
+        }
+        return entities.get(id.intValue());
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        lock.readLock().lock();
+        try {
+            return storedOf(clazz);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // in id order, callers hold the lock
+    private <T extends Entity> List<T> storedOf(Class<T> clazz) {
+        BitSet ids = new BitSet();
+        for (Map.Entry<Class<?>, BitSet> entry : idsByClass.entrySet()) {
+            if (clazz.isAssignableFrom(entry.getKey())) {
+                ids.or(entry.getValue());
+            }
+        }
+        List<T> result = Lists.newArrayListWithCapacity(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result.add(clazz.cast(entities.get(id)));
+        }
+        return result;
+    }
+
+    /**
+     * The relationships are the ones the stored objects hold, so this loads the same entities as
+     * {@link #loadAll(Class)}.
+     */
+    @Override
+    public <T extends Entity> Collection<T> fetchAll(FetchPlan<T> plan) {
+        return loadAll(plan.getRootClass());
+    }
+
+    /**
+     * The entities are already in memory, the stream reads a copy of the ids taken when it is created.
+     */
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size should be more than 0");
+        }
+        return loadAll(clazz).stream();
+    }
+
+    /**
+     * Properties are read from the fields, by their {@link Property} name or their field name. A property no
+     * field has is missing in every row.
+     */
+    @Override
+    public Projection project(Class<? extends Entity> clazz, String... properties) {
+        Field[] fields = new Field[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            fields[i] = field(clazz, properties[i]);
+        }
+        lock.readLock().lock();
+        try {
+            List<? extends Entity> rows = storedOf(clazz);
+            long[] ids = new long[rows.size()];
+            double[][] columns = new double[properties.length][rows.size()];
+            for (int row = 0; row < ids.length; row++) {
+                Entity entity = rows.get(row);
+                ids[row] = entity.getId();
+                for (int i = 0; i < properties.length; i++) {
+                    columns[i][row] = value(fields[i], entity, properties[i]);
+                }
+            }
+            Map<String, double[]> byProperty = Maps.newLinkedHashMap();
+            for (int i = 0; i < properties.length; i++) {
+                byProperty.put(properties[i], columns[i]);
+            }
+            return new Projection(ids, byProperty);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Field field(Class<?> clazz, String property) {
+        for (Class<?> type = clazz; null != type; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Property annotation = field.getAnnotation(Property.class);
+                String name = null != annotation && !annotation.name().isEmpty() ? annotation.name() : field.getName();
+                if (name.equals(property)) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static double value(Field field, Entity entity, String property) {
+        if (null == field) {
+            return Double.NaN;
+        }
+        Object value;
+        try {
+            value = field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read property " + property, e);
+        }
+        if (null == value) {
+            return Double.NaN;
+        }
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Property " + property + " is not numeric");
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        lock.writeLock().lock();
+        try {
+            remove(entity.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (DAOListener listener : listeners) {
+            listener.deleted(entity);
+        }
+    }
+
+    // callers hold the write lock
+    private Entity remove(Long id) {
+        Entity entity = stored(id);
+        if (null == entity) {
+            return null;
+        }
+        int index = id.intValue();
+        entities.set(index, null);
+        idsByClass.get(entity.getClass()).clear(index);
+        List<Object> key = keys.set(index, null);
+        if (null != key) {
+            idsByKey.remove(key);
+        }
+        nameIndex.remove(id);
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> void deleteAlbumInMusician(T entity) {
+        if (entity instanceof Musician) {
+            deleteAlbumsInMusicians(Collections.singletonList((Musician) entity));
+        } else {
+            delete(entity);
+        }
+    }
+
+    @Override
+    public <T extends Entity> void deleteMusicianAndMusicianInstrumentAlsoBeDeleted(T entity) {
+        if (entity instanceof Musician) {
+            deleteMusiciansAndMusicianInstruments(Collections.singletonList((Musician) entity));
+        } else {
+            delete(entity);
+        }
+    }
+
+    @Override
+    public void deleteAlbumsInMusicians(Collection<Musician> musicians) {
+        Map<Long, Entity> known = Maps.newHashMap();
+        List<Entity> deleted = Lists.newArrayList();
+        lock.writeLock().lock();
+        try {
+            Set<Long> held = Sets.newLinkedHashSet();
+            for (Musician musician : musicians) {
+                known(known, musician);
+                // the albums the musician holds are deleted too, even when they were not saved with it
+                if (null != musician.getAlbums()) {
+                    for (Album album : musician.getAlbums()) {
+                        known(known, album);
+                        if (null != album.getId()) {
+                            held.add(album.getId());
+                        }
+                    }
+                }
+            }
+            List<Musician> stored = storedMusicians(musicians);
+            Set<Long> albumIds = Sets.newLinkedHashSet();
+            for (Musician musician : stored) {
+                if (null != musician.getAlbums()) {
+                    for (Album album : musician.getAlbums()) {
+                        if (null != album.getId() && !held.contains(album.getId())) {
+                            albumIds.add(album.getId());
+                        }
+                    }
+                }
+            }
+            albumIds.addAll(held);
+            removeAll(albumIds, known, deleted);
+            removeAll(ids(stored), known, deleted);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireDeleted(deleted);
+    }
+
+    @Override
+    public void deleteMusiciansAndMusicianInstruments(Collection<Musician> musicians) {
+        Map<Long, Entity> known = Maps.newHashMap();
+        List<Entity> deleted = Lists.newArrayList();
+        lock.writeLock().lock();
+        try {
+            for (Musician musician : musicians) {
+                known(known, musician);
+            }
+            List<Musician> stored = storedMusicians(musicians);
+            Set<Long> musicianIds = Sets.newLinkedHashSet(ids(stored));
+            Set<Long> musicianInstrumentIds = Sets.newLinkedHashSet();
+            for (MusicianInstrument musicianInstrument : storedOf(MusicianInstrument.class)) {
+                Musician musician = musicianInstrument.getMusician();
+                if (null != musician && musicianIds.contains(musician.getId())) {
+                    musicianInstrumentIds.add(musicianInstrument.getId());
+                }
+            }
+            removeAll(musicianInstrumentIds, known, deleted);
+            removeAll(musicianIds, known, deleted);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireDeleted(deleted);
+    }
+
+    private static void known(Map<Long, Entity> known, Entity entity) {
+        if (null != entity.getId()) {
+            known.put(entity.getId(), entity);
+        }
+    }
+
+    // the stored musicians with the names of the given ones, each once
+    private List<Musician> storedMusicians(Collection<Musician> musicians) {
+        Set<Long> ids = Sets.newLinkedHashSet();
+        for (Musician musician : musicians) {
+            Long id = idsByKey.get(Arrays.asList(Musician.class, musician.getName()));
+            if (null != id) {
+                ids.add(id);
+            }
+        }
+        List<Musician> stored = Lists.newArrayList();
+        for (Long id : ids) {
+            stored.add((Musician) entities.get(id.intValue()));
+        }
+        return stored;
+    }
+
+    private static List<Long> ids(List<? extends Entity> entities) {
+        List<Long> ids = Lists.newArrayList();
+        for (Entity entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
+
+    // listeners get the entity held by the caller, or the stored one when the caller did not hold it
+    private void removeAll(Collection<Long> ids, Map<Long, Entity> known, List<Entity> deleted) {
+        for (Long id : ids) {
+            Entity entity = remove(id);
+            if (null != entity) {
+                deleted.add(known.getOrDefault(id, entity));
+            }
+        }
+    }
+
+    private void fireDeleted(List<Entity> deleted) {
+        for (Entity entity : deleted) {
+            for (DAOListener listener : listeners) {
+                listener.deleted(entity);
+            }
+        }
+    }
+
+    @Override
+    public Musician findMusicianByName(String name) {
+        lock.readLock().lock();
+        try {
+            Long id = idsByKey.get(Arrays.asList(Musician.class, name));
+            return null == id ? null : (Musician) entities.get(id.intValue());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Musician> findMusiciansByNames(Collection<String> names) {
+        Map<String, Musician> musicians = Maps.newLinkedHashMap();
+        lock.readLock().lock();
+        try {
+            for (String name : names) {
+                Long id = idsByKey.get(Arrays.asList(Musician.class, name));
+                if (null != id) {
+                    musicians.put(name, (Musician) entities.get(id.intValue()));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return musicians;
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNameIgnoreCase(String name) {
+        lock.readLock().lock();
+        try {
+            return musicians(nameIndex.getIgnoreCase(name));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNamePrefix(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return musicians(nameIndex.startingWith(prefix, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // callers hold the lock
+    private List<Musician> musicians(List<Long> ids) {
+        List<Musician> musicians = Lists.newArrayListWithCapacity(ids.size());
+        for (Long id : ids) {
+            musicians.add((Musician) entities.get(id.intValue()));
+        }
+        return musicians;
+    }
+
+    @Override
+    public List<Musician> findMostProlificMusicians(int k, int startYear, int endYear) {
+        Map<Musician, Integer> counts = Maps.newIdentityHashMap();
+        List<Musician> ranked = Lists.newArrayList();
+        lock.readLock().lock();
+        try {
+            for (Musician musician : storedOf(Musician.class)) {
+                if (null == musician.getAlbums()) {
+                    continue;
+                }
+                Set<Long> albums = Sets.newHashSet();
+                for (Album album : musician.getAlbums()) {
+                    boolean inYears = (startYear <= 0 || album.getReleaseYear() >= startYear)
+                            && (endYear <= 0 || album.getReleaseYear() <= endYear);
+                    if (inYears && stored(album.getId()) instanceof Album) {
+                        albums.add(album.getId());
+                    }
+                }
+                if (!albums.isEmpty()) {
+                    counts.put(musician, albums.size());
+                    ranked.add(musician);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        ranked.sort(Comparator.<Musician, Integer>comparing(counts::get).reversed()
+                .thenComparing(Musician::getName));
+        return Lists.newArrayList(ranked.subList(0, Math.min(k, ranked.size())));
+    }
+
+    @Override
+    public Map<Integer, Integer> countAlbumsByReleaseYear() {
+        Map<Integer, Integer> counts = Maps.newHashMap();
+        lock.readLock().lock();
+        try {
+            for (Album album : storedOf(Album.class)) {
+                counts.merge(album.getReleaseYear(), 1, Integer::sum);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,66 @@
+package allaboutecm.dataaccess.neo4j;
+
+import java.util.List;
+
+/**
+ * An index or uniqueness constraint of the schema with the state of its index in the store,
+ * as reported by {@link SchemaManager}.
+ */
+public class IndexStatus {
+    public enum State {
+        /** The index can be used. */
+        ONLINE,
+        /** The index is being built. */
+        POPULATING,
+        /** The index could not be built, see the failure message. */
+        FAILED,
+        /** The store does not have the index. */
+        MISSING
+    }
+
+    private final String label;
+    private final List<String> properties;
+    private final boolean unique;
+    private final State state;
+    private final String failureMessage;
+
+    IndexStatus(String label, List<String> properties, boolean unique, State state, String failureMessage) {
+        this.label = label;
+        this.properties = properties;
+        this.unique = unique;
+        this.state = state;
+        this.failureMessage = failureMessage;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    /**
+     * The state of the index in the store, null for an index only declared.
+     */
+    public State getState() {
+        return state;
+    }
+
+    public boolean isOnline() {
+        return State.ONLINE == state;
+    }
+
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    @Override
+    public String toString() {
+        return (unique ? "unique " : "") + ":" + label + properties + " " + state;
+    }
+}
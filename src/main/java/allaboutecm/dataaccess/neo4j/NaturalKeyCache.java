@@ -0,0 +1,100 @@
+package allaboutecm.dataaccess.neo4j;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ids of the nodes stored for natural keys, so that saving an entity again does not need to ask the store.
+ *
+ * The ids are kept in a least recently used map of bounded size. A Bloom filter holds every key stored
+ * so far, a key it has never seen is certainly not in the store and its entity can be created without
+ * looking for it. The filter cannot forget keys, so a deleted key is only looked up again in the store.
+ */
+class NaturalKeyCache {
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private static final Funnel<List<Object>> KEY_FUNNEL = (key, sink) -> sink.putString(key.toString(), Charsets.UTF_8);
+
+    private final LinkedHashMap<List<Object>, Long> ids;
+    private final Map<Long, List<Object>> keys;
+    private final BloomFilter<List<Object>> storedKeys;
+
+    NaturalKeyCache(int capacity, int expectedKeys) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity should be more than 0");
+        }
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("Expected number of keys should be more than 0");
+        }
+        this.keys = Maps.newHashMap();
+        this.ids = new LinkedHashMap<List<Object>, Long>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Long> eldest) {
+                if (size() > capacity) {
+                    keys.remove(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.storedKeys = BloomFilter.create(KEY_FUNNEL, expectedKeys, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    /**
+     * Returns the id stored for the key, or null when it is not cached.
+     */
+    Long get(List<Object> key) {
+        return ids.get(key);
+    }
+
+    /**
+     * Whether a node may have been stored with the key. When false, no node has it.
+     */
+    boolean mightBeStored(List<Object> key) {
+        return storedKeys.mightContain(key);
+    }
+
+    /**
+     * Records a key that exists in the store without caching its id.
+     */
+    void stored(List<Object> key) {
+        storedKeys.put(key);
+    }
+
+    /**
+     * Caches the id of a node, forgetting the key it was cached with before if the node was renamed.
+     */
+    void put(List<Object> key, Long id) {
+        storedKeys.put(key);
+        List<Object> oldKey = keys.put(id, key);
+        if (null != oldKey && !oldKey.equals(key)) {
+            ids.remove(oldKey);
+        }
+        Long oldId = ids.put(key, id);
+        if (null != oldId && !oldId.equals(id)) {
+            keys.remove(oldId);
+        }
+    }
+
+    /**
+     * Forgets the id of a deleted node.
+     */
+    void remove(Long id) {
+        List<Object> key = keys.remove(id);
+        if (null != key) {
+            ids.remove(key);
+        }
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
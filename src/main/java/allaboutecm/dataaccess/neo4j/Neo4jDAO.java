@@ -1,31 +1,274 @@
 package allaboutecm.dataaccess.neo4j;
 
 import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.Entities;
+import allaboutecm.dataaccess.FetchPlan;
+import allaboutecm.dataaccess.MusicianNameIndex;
+import allaboutecm.dataaccess.Projection;
 import allaboutecm.model.Album;
 import allaboutecm.model.Entity;
 import allaboutecm.model.MusicalInstrument;
 import allaboutecm.model.Musician;
 import allaboutecm.model.MusicianInstrument;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.neo4j.ogm.cypher.Filter;
 import org.neo4j.ogm.cypher.Filters;
+import org.neo4j.ogm.session.Neo4jSession;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.transaction.Transaction;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.neo4j.ogm.cypher.ComparisonOperator.EQUALS;
 
 public class  Neo4jDAO implements DAO {
     private static final int DEPTH_LIST = 0;
     private static final int DEPTH_ENTITY = 1;
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String MOST_PROLIFIC_MUSICIANS =
+            "MATCH (m:Musician)-[:albums]->(a:Album) " +
+            "WHERE ($startYear <= 0 OR a.releaseYear >= $startYear) " +
+            "AND ($endYear <= 0 OR a.releaseYear <= $endYear) " +
+            "WITH m, count(DISTINCT a) AS albumCount " +
+            "ORDER BY albumCount DESC, m.name ASC " +
+            "LIMIT $k " +
+            "RETURN id(m) AS id";
+
+    private static final String MUSICIANS_BY_NAMES =
+            "MATCH (m:Musician) " +
+            "WHERE m.name IN $names " +
+            "RETURN id(m) AS id";
+
+    // the name is folded by the caller, see MusicianNameIndex.fold. toLower folds the stored names in the default
+    // locale of the store's JVM, which MusicianNameIndex documents
+    private static final String MUSICIANS_BY_FOLDED_NAME =
+            "MATCH (m:Musician) " +
+            "WHERE toLower(m.name) = $name " +
+            "RETURN id(m) AS id " +
+            "ORDER BY m.name, id(m)";
+
+    private static final String MUSICIANS_BY_FOLDED_PREFIX =
+            "MATCH (m:Musician) " +
+            "WHERE toLower(m.name) STARTS WITH $prefix " +
+            "RETURN id(m) AS id " +
+            "ORDER BY toLower(m.name), m.name, id(m) " +
+            "LIMIT $limit";
+
+    private static final String MUSICIAN_IDS_AND_NAMES =
+            "MATCH (m:Musician) " +
+            "RETURN id(m) AS id, m.name AS name";
+
+    private static final String ALBUMS_BY_RELEASE_YEAR =
+            "MATCH (a:Album) " +
+            "RETURN a.releaseYear AS year, count(a) AS albumCount";
+
+    // nodes are matched or created on their natural key in one query per label, key.index is the position
+    // in the batch and its related entities. It runs in the same transaction as the save, so no entity is read beforehand
+    private static final String MERGE_ALBUMS =
+            "UNWIND $keys AS key " +
+            "MERGE (a:Album {albumName: key.albumName, recordNumber: key.recordNumber, releaseYear: key.releaseYear}) " +
+            "RETURN key.index AS index, id(a) AS id";
+
+    private static final String MERGE_MUSICIANS =
+            "UNWIND $keys AS key " +
+            "MERGE (m:Musician {name: key.name}) " +
+            "RETURN key.index AS index, id(m) AS id";
+
+    private static final String MERGE_MUSICAL_INSTRUMENTS =
+            "UNWIND $keys AS key " +
+            "MERGE (i:MusicalInstrument {name: key.name}) " +
+            "RETURN key.index AS index, id(i) AS id";
+
+    // entities that were already saved are only matched, they keep their own node when no other node has their key,
+    // so renaming one updates its node in place instead of merging a new node and leaving the old one behind.
+    // Renaming one to the key of another node still moves it onto that node, the way a new entity with that key
+    // would be: its old node keeps the old key and is not deleted. MERGE does not lock the key either, two sessions
+    // saving the same new key at once can both create a node unless the uniqueness constraints of SchemaManager
+    // are in the store (Album has no constraint, only a composite index)
+    private static final String MATCH_ALBUMS =
+            "UNWIND $keys AS key " +
+            "MATCH (a:Album {albumName: key.albumName, recordNumber: key.recordNumber, releaseYear: key.releaseYear}) " +
+            "RETURN key.index AS index, id(a) AS id";
+
+    private static final String MATCH_MUSICIANS =
+            "UNWIND $keys AS key " +
+            "MATCH (m:Musician {name: key.name}) " +
+            "RETURN key.index AS index, id(m) AS id";
+
+    private static final String MATCH_MUSICAL_INSTRUMENTS =
+            "UNWIND $keys AS key " +
+            "MATCH (i:MusicalInstrument {name: key.name}) " +
+            "RETURN key.index AS index, id(i) AS id";
+
+    // cascades run as one traversal and one transaction. Nodes are collected first, so that a node reached twice
+    // is deleted once, and their ids are returned for the listeners
+    private static final String DELETE_MUSICIANS_WITH_ALBUMS =
+            "UNWIND $names AS name " +
+            "OPTIONAL MATCH (m:Musician {name: name}) " +
+            "OPTIONAL MATCH (m)-[:albums]->(a:Album) " +
+            "WITH collect(DISTINCT m) AS musicians, collect(DISTINCT a) AS stored " +
+            "OPTIONAL MATCH (held:Album) WHERE id(held) IN $albumIds " +
+            "WITH musicians, stored, collect(held) AS held " +
+            "WITH musicians, [x IN stored WHERE NOT id(x) IN $albumIds] + held AS albums " +
+            "WITH musicians, albums, [x IN musicians | id(x)] AS musicianIds, [x IN albums | id(x)] AS deletedIds " +
+            "FOREACH (x IN albums | DETACH DELETE x) " +
+            "FOREACH (x IN musicians | DETACH DELETE x) " +
+            "RETURN musicianIds, deletedIds";
+
+    private static final String DELETE_MUSICIANS_WITH_INSTRUMENTS =
+            "UNWIND $names AS name " +
+            "OPTIONAL MATCH (m:Musician {name: name}) " +
+            "OPTIONAL MATCH (mi:MusicianInstrument)-[:musician]->(m) " +
+            "WITH collect(DISTINCT m) AS musicians, collect(DISTINCT mi) AS musicianInstruments " +
+            "WITH musicians, musicianInstruments, [x IN musicians | id(x)] AS musicianIds, " +
+            "[x IN musicianInstruments | id(x)] AS deletedIds " +
+            "FOREACH (x IN musicianInstruments | DETACH DELETE x) " +
+            "FOREACH (x IN musicians | DETACH DELETE x) " +
+            "RETURN musicianIds, deletedIds";
+
+    // keyset paging: a page starts after the last id of the page before, so no page skips over the earlier ones
+    // the ids come first so that the entities the session already holds are known before the page is loaded
+    private static final String PAGE_IDS_AFTER_ID =
+            "MATCH (n:`%s`) " +
+            "WHERE id(n) > $after " +
+            "RETURN id(n) AS id " +
+            "ORDER BY id(n) " +
+            "LIMIT $pageSize";
+
+    // every root with the paths of its planned relationships, the roots without any are kept by OPTIONAL MATCH
+    private static final String FETCH_PLAN =
+            "MATCH (n:`%s`) " +
+            "OPTIONAL MATCH p = (n)-[:%s]->() " +
+            "RETURN n, collect(p)";
+
+    // projected properties are written into the query, so only plain property names are accepted
+    private static final Pattern PROPERTY_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private static final String ALBUM_KEYS =
+            "MATCH (a:Album) " +
+            "RETURN a.albumName AS albumName, a.recordNumber AS recordNumber, a.releaseYear AS releaseYear";
+
+    private static final String MUSICIAN_KEYS =
+            "MATCH (m:Musician) " +
+            "RETURN m.name AS name";
+
+    private static final String MUSICAL_INSTRUMENT_KEYS =
+            "MATCH (i:MusicalInstrument) " +
+            "RETURN i.name AS name";
 
     private Session session;
 
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    // null unless enableIdentityCache was called
+    private NaturalKeyCache identities;
+
+    // null unless enableNameIndex was called
+    private MusicianNameIndex nameIndex;
+
+    private final List<DAOListener> listeners = new CopyOnWriteArrayList<>();
+
     public Neo4jDAO(Session session) {
         this.session = session;
     }
 
+    /**
+     * Registers a listener notified after every save and delete made through this DAO.
+     */
+    public void addListener(DAOListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(DAOListener listener) {
+        listeners.remove(listener);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of entities {@link #createOrUpdateAll(Collection)} writes in one transaction.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size should be more than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Caches the node ids of up to capacity natural keys, and keeps every stored key in a Bloom filter sized
+     * for expectedKeys, so that saving an entity again or saving a new one does not look for its key in the
+     * store. The filter is filled from the store now.
+     *
+     * The cache is only correct while this DAO is the only one writing to the store, enable it again after
+     * the store was changed some other way.
+     */
+    public void enableIdentityCache(int capacity, int expectedKeys) {
+        NaturalKeyCache cache = new NaturalKeyCache(capacity, expectedKeys);
+        for (Map<String, Object> row : session.query(ALBUM_KEYS, ImmutableMap.of()).queryResults()) {
+            Object releaseYear = row.get("releaseYear");
+            cache.stored(Arrays.asList(Album.class, row.get("albumName"), row.get("recordNumber"),
+                    null == releaseYear ? null : ((Number) releaseYear).intValue()));
+        }
+        for (Map<String, Object> row : session.query(MUSICIAN_KEYS, ImmutableMap.of()).queryResults()) {
+            cache.stored(Arrays.asList(Musician.class, row.get("name")));
+        }
+        for (Map<String, Object> row : session.query(MUSICAL_INSTRUMENT_KEYS, ImmutableMap.of()).queryResults()) {
+            cache.stored(Arrays.asList(MusicalInstrument.class, row.get("name")));
+        }
+        identities = cache;
+    }
+
+    public void disableIdentityCache() {
+        identities = null;
+    }
+
+    /**
+     * Keeps the names of the stored musicians in memory, filled from the store now, so that the lookups by
+     * name only load the musicians they find. Like the identity cache, the index is only correct while this DAO
+     * is the only one writing to the store.
+     */
+    public void enableNameIndex() {
+        MusicianNameIndex index = new MusicianNameIndex();
+        for (Map<String, Object> row : session.query(MUSICIAN_IDS_AND_NAMES, ImmutableMap.of()).queryResults()) {
+            index.put(((Number) row.get("id")).longValue(), (String) row.get("name"));
+        }
+        disableNameIndex();
+        nameIndex = index;
+        addListener(index);
+    }
+
+    public void disableNameIndex() {
+        if (null != nameIndex) {
+            removeListener(nameIndex);
+            nameIndex = null;
+        }
+    }
+
     @Override
     public <T extends Entity> T load(Class<T> clazz, Long id) {
         return session.load(clazz, id, DEPTH_ENTITY);
@@ -33,19 +276,158 @@ public class  Neo4jDAO implements DAO {
 
     @Override
     public <T extends Entity> T createOrUpdate(T entity) {
-        Class clazz = entity.getClass();
-
-        T existingEntity = findExistingEntity(entity, clazz);
-        if (null != existingEntity) {
-            entity.setId(existingEntity.getId());
+        try (Transaction tx = session.beginTransaction()) {
+            mergeNaturalKeys(Collections.singletonList(entity));
+            session.save(entity, DEPTH_ENTITY);
+            tx.commit();
         }
-        Transaction tx = session.beginTransaction();
-        session.save(entity, DEPTH_ENTITY);
-        tx.commit();
+        cacheIds(Collections.singletonList(entity));
+        fireSaved(entity);
         return entity;
 
     }
 
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        List<T> batch = Lists.newArrayListWithCapacity(Math.min(batchSize, entities.size()));
+        Set<List<Object>> batchKeys = Sets.newHashSet();
+        for (T entity : entities) {
+            List<Object> key = Entities.naturalKey(entity);
+            // two objects of one batch merged on the same node would be written over each other, so the second one
+            // goes to the next batch
+            if (batch.size() == batchSize || (null != key && batchKeys.contains(key))) {
+                saveBatch(batch);
+                batch.clear();
+                batchKeys.clear();
+            }
+            batch.add(entity);
+            if (null != key) {
+                batchKeys.add(key);
+            }
+        }
+        if (!batch.isEmpty()) {
+            saveBatch(batch);
+        }
+        return entities;
+    }
+
+    private <T extends Entity> void saveBatch(List<T> batch) {
+        long start = System.nanoTime();
+        try (Transaction tx = session.beginTransaction()) {
+            mergeNaturalKeys(batch);
+            session.save(batch, DEPTH_ENTITY);
+            tx.commit();
+        }
+        cacheIds(batch);
+        long elapsed = System.nanoTime() - start;
+
+        for (T entity : batch) {
+            fireSaved(entity);
+        }
+        for (DAOListener listener : listeners) {
+            listener.batchSaved(batch.size(), elapsed);
+        }
+    }
+
+    // gives every entity of the batch, and every entity the save cascades to, the id of the node with its natural
+    // key, creating the missing nodes. A related entity left without an id would be created next to the node with
+    // its key, and fail the uniqueness constraints of SchemaManager
+    private <T extends Entity> void mergeNaturalKeys(List<T> batch) {
+        List<Entity> entities = withRelated(batch);
+        ListMultimap<String, Map<String, Object>> keysByQuery = ArrayListMultimap.create();
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+            Class<? extends Entity> clazz = entity.getClass();
+            List<Object> naturalKey = Entities.naturalKey(entity);
+            if (null == naturalKey || naturalKey.contains(null)) {
+                // a MusicianInstrument is identified by its relationships and MERGE cannot match a null
+                // property, those are still looked up on their own
+                Entity existingEntity = findExistingEntity(entity, clazz);
+                if (null != existingEntity) {
+                    entity.setId(existingEntity.getId());
+                }
+                continue;
+            }
+
+            if (null != identities) {
+                Long id = identities.get(naturalKey);
+                if (null != id) {
+                    entity.setId(id);
+                    continue;
+                }
+                if (!identities.mightBeStored(naturalKey)) {
+                    // no node has the key, the save creates one or keeps the entity's own node
+                    continue;
+                }
+            }
+
+            boolean saved = null != entity.getId();
+            if (clazz.equals(Album.class)) {
+                Album album = (Album) entity;
+                keysByQuery.put(saved ? MATCH_ALBUMS : MERGE_ALBUMS, ImmutableMap.of("index", i,
+                        "albumName", album.getAlbumName(), "recordNumber", album.getRecordNumber(),
+                        "releaseYear", album.getReleaseYear()));
+            } else if (clazz.equals(Musician.class)) {
+                keysByQuery.put(saved ? MATCH_MUSICIANS : MERGE_MUSICIANS,
+                        ImmutableMap.of("index", i, "name", ((Musician) entity).getName()));
+            } else {
+                keysByQuery.put(saved ? MATCH_MUSICAL_INSTRUMENTS : MERGE_MUSICAL_INSTRUMENTS,
+                        ImmutableMap.of("index", i, "name", ((MusicalInstrument) entity).getName()));
+            }
+        }
+        for (String query : keysByQuery.keySet()) {
+            setNodeIds(entities, query, keysByQuery.get(query));
+        }
+    }
+
+    // the batch followed by the related entities with a complete natural key, each object once. Entities without
+    // one are only looked up when they are saved themselves
+    private static <T extends Entity> List<Entity> withRelated(List<T> batch) {
+        List<Entity> entities = Lists.newArrayList(batch);
+        Set<Entity> seen = Sets.newIdentityHashSet();
+        seen.addAll(batch);
+        for (T entity : batch) {
+            for (Entity related : Entities.related(entity)) {
+                List<Object> naturalKey = Entities.naturalKey(related);
+                if (null != naturalKey && !naturalKey.contains(null) && seen.add(related)) {
+                    entities.add(related);
+                }
+            }
+        }
+        return entities;
+    }
+
+    // also caches the entities saved by cascade, the filter has to know every key that was stored
+    private <T extends Entity> void cacheIds(List<T> saved) {
+        if (null == identities) {
+            return;
+        }
+        for (T entity : saved) {
+            cacheId(entity);
+            for (Entity related : Entities.related(entity)) {
+                cacheId(related);
+            }
+        }
+    }
+
+    private void cacheId(Entity entity) {
+        List<Object> naturalKey = Entities.naturalKey(entity);
+        if (null != naturalKey && !naturalKey.contains(null) && null != entity.getId()) {
+            identities.put(naturalKey, entity.getId());
+        }
+    }
+
+    private void setNodeIds(List<Entity> entities, String query, List<Map<String, Object>> keys) {
+        Set<Integer> found = Sets.newHashSet();
+        for (Map<String, Object> row : session.query(query, ImmutableMap.of("keys", keys)).queryResults()) {
+            int index = ((Number) row.get("index")).intValue();
+            // when several nodes already have the key, the first one found is updated like findExistingEntity does
+            if (found.add(index)) {
+                entities.get(index).setId(((Number) row.get("id")).longValue());
+            }
+        }
+    }
+
     @Override
     public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
         return session.loadAll(clazz, DEPTH_LIST);
@@ -53,13 +435,168 @@ public class  Neo4jDAO implements DAO {
 
     }
 
+    @Override
+    public <T extends Entity> Collection<T> fetchAll(FetchPlan<T> plan) {
+        Class<T> clazz = plan.getRootClass();
+        if (plan.getRelationships().isEmpty()) {
+            return loadAll(clazz);
+        }
+        List<String> types = Lists.newArrayList();
+        for (String relationship : plan.getRelationships()) {
+            if (!PROPERTY_NAME.matcher(relationship).matches()) {
+                throw new IllegalArgumentException("Invalid relationship name: " + relationship);
+            }
+            types.add("`" + relationship + "`");
+        }
+        String query = String.format(FETCH_PLAN, clazz.getSimpleName(), String.join("|", types));
+
+        // every node and relationship of the paths is mapped, each root is returned once
+        Set<T> seen = Sets.newIdentityHashSet();
+        List<T> entities = Lists.newArrayList();
+        for (T entity : session.query(clazz, query, ImmutableMap.of())) {
+            if (seen.add(entity)) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Entities are loaded like {@link #loadAll(Class)} loads them. When the next page is fetched the entities of
+     * the page before are detached from the session, saving one of them again updates its node by id.
+     */
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size should be more than 0");
+        }
+        PageIterator<T> pages = new PageIterator<>(clazz, pageSize);
+        // a stream closed before its end releases the page it stopped in
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false).onClose(pages::release);
+    }
+
+    /**
+     * Pages release the entities they brought into the session, the ones it held before are the caller's.
+     */
+    private final class PageIterator<T extends Entity> implements Iterator<T> {
+        private final Class<T> clazz;
+        private final String query;
+        private final int pageSize;
+
+        private List<T> page = Collections.emptyList();
+        // ids of the page the session held before the page was loaded
+        private Set<Long> held = Collections.emptySet();
+        private Iterator<T> next = page.iterator();
+        private long after = -1;
+        private boolean last = false;
+
+        private PageIterator(Class<T> clazz, int pageSize) {
+            this.clazz = clazz;
+            this.query = String.format(PAGE_IDS_AFTER_ID, clazz.getSimpleName());
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!next.hasNext()) {
+                if (last) {
+                    release();
+                    return false;
+                }
+                fetch();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return next.next();
+        }
+
+        private void fetch() {
+            release();
+            List<Long> ids = queryIds(query, ImmutableMap.of("after", after, "pageSize", pageSize));
+            held = Sets.newHashSet();
+            for (Long id : ids) {
+                if (isHeld(id)) {
+                    held.add(id);
+                }
+            }
+            page = ids.isEmpty() ? Lists.newArrayList() : Lists.newArrayList(session.loadAll(clazz, ids, DEPTH_LIST));
+            page.sort(Comparator.comparing(Entity::getId));
+            if (!ids.isEmpty()) {
+                after = ids.get(ids.size() - 1);
+            }
+            last = ids.size() < pageSize;
+            next = page.iterator();
+        }
+
+        private void release() {
+            for (T entity : page) {
+                if (!held.contains(entity.getId())) {
+                    session.detachNodeEntity(entity.getId());
+                }
+            }
+            page = Collections.emptyList();
+            held = Collections.emptySet();
+        }
+    }
+
+    /**
+     * Only the id and the properties are returned by the query, OGM maps no entity for it.
+     */
+    @Override
+    public Projection project(Class<? extends Entity> clazz, String... properties) {
+        StringBuilder query = new StringBuilder("MATCH (n:`").append(clazz.getSimpleName()).append("`) RETURN id(n) AS id");
+        for (int i = 0; i < properties.length; i++) {
+            if (!PROPERTY_NAME.matcher(properties[i]).matches()) {
+                throw new IllegalArgumentException("Invalid property name: " + properties[i]);
+            }
+            query.append(", n.").append(properties[i]).append(" AS p").append(i);
+        }
+        query.append(" ORDER BY id");
+
+        List<Map<String, Object>> rows = Lists.newArrayList(session.query(query.toString(), ImmutableMap.of()).queryResults());
+        long[] ids = new long[rows.size()];
+        double[][] columns = new double[properties.length][rows.size()];
+        for (int row = 0; row < ids.length; row++) {
+            Map<String, Object> values = rows.get(row);
+            ids[row] = ((Number) values.get("id")).longValue();
+            for (int i = 0; i < properties.length; i++) {
+                Object value = values.get("p" + i);
+                if (null == value) {
+                    columns[i][row] = Double.NaN;
+                } else if (value instanceof Number) {
+                    columns[i][row] = ((Number) value).doubleValue();
+                } else {
+                    throw new IllegalArgumentException("Property " + properties[i] + " is not numeric");
+                }
+            }
+        }
+        Map<String, double[]> byProperty = Maps.newLinkedHashMap();
+        for (int i = 0; i < properties.length; i++) {
+            byProperty.put(properties[i], columns[i]);
+        }
+        return new Projection(ids, byProperty);
+    }
+
     @Override
     public <T extends Entity> void delete(T entity) {
         session.delete(entity);
+        afterDelete(entity);
     }
 
     @Override
     public Musician findMusicianByName(String name) {
+        MusicianNameIndex index = nameIndex;
+        if (null != index) {
+            Long id = index.get(name);
+            return null == id ? null : session.load(Musician.class, id, DEPTH_ENTITY);
+        }
         Filters filters = new Filters();
         filters.add(new Filter("name", EQUALS, name));
         Collection<Musician> musicians = session.loadAll(Musician.class, filters);
@@ -70,7 +607,108 @@ public class  Neo4jDAO implements DAO {
         }
     }
 
-    private <T extends Entity> T findExistingEntity(Entity entity, Class clazz) {
+    /**
+     * The musicians are loaded like {@link #findMusicianByName(String)} loads one, all in one call.
+     */
+    @Override
+    public Map<String, Musician> findMusiciansByNames(Collection<String> names) {
+        MusicianNameIndex index = nameIndex;
+        List<Long> ids = Lists.newArrayList();
+        if (null != index) {
+            ids.addAll(index.getAll(names).values());
+        } else {
+            List<String> distinct = Lists.newArrayList(Sets.newLinkedHashSet(names));
+            distinct.remove(null);
+            if (!distinct.isEmpty()) {
+                ids = queryIds(MUSICIANS_BY_NAMES, ImmutableMap.of("names", distinct));
+            }
+        }
+        Map<String, Musician> byName = Maps.newHashMap();
+        for (Musician musician : loadMusicians(ids, DEPTH_ENTITY)) {
+            byName.put(musician.getName(), musician);
+        }
+        Map<String, Musician> musicians = Maps.newLinkedHashMap();
+        for (String name : names) {
+            Musician musician = byName.get(name);
+            if (null != musician) {
+                musicians.put(name, musician);
+            }
+        }
+        return musicians;
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNameIgnoreCase(String name) {
+        if (null == name) {
+            return Lists.newArrayList();
+        }
+        MusicianNameIndex index = nameIndex;
+        List<Long> ids = null != index ? index.getIgnoreCase(name)
+                : queryIds(MUSICIANS_BY_FOLDED_NAME, ImmutableMap.of("name", MusicianNameIndex.fold(name)));
+        return loadMusicians(ids, DEPTH_ENTITY);
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNamePrefix(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit should be more than 0");
+        }
+        MusicianNameIndex index = nameIndex;
+        List<Long> ids = null != index ? index.startingWith(prefix, limit)
+                : queryIds(MUSICIANS_BY_FOLDED_PREFIX,
+                        ImmutableMap.of("prefix", MusicianNameIndex.fold(prefix), "limit", limit));
+        return loadMusicians(ids, DEPTH_ENTITY);
+    }
+
+    // without the mapping context of the session, every entity is taken as held and none is detached
+    private boolean isHeld(Long id) {
+        return !(session instanceof Neo4jSession) || null != ((Neo4jSession) session).context().getNodeEntity(id);
+    }
+
+    private List<Long> queryIds(String query, Map<String, ?> parameters) {
+        List<Long> ids = Lists.newArrayList();
+        for (Map<String, Object> row : session.query(query, parameters).queryResults()) {
+            ids.add(((Number) row.get("id")).longValue());
+        }
+        return ids;
+    }
+
+    // in the order of the ids, loadAll does not keep it
+    private List<Musician> loadMusicians(List<Long> ids, int depth) {
+        if (ids.isEmpty()) {
+            return Lists.newArrayList();
+        }
+        Map<Long, Musician> byId = Maps.newHashMap();
+        for (Musician musician : session.loadAll(Musician.class, ids, depth)) {
+            byId.put(musician.getId(), musician);
+        }
+        List<Musician> result = Lists.newArrayListWithCapacity(ids.size());
+        for (Long id : ids) {
+            Musician musician = byId.get(id);
+            if (null != musician) {
+                result.add(musician);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Musician> findMostProlificMusicians(int k, int startYear, int endYear) {
+        Map<String, Object> parameters = ImmutableMap.of("k", k, "startYear", startYear, "endYear", endYear);
+        // only the k winners are hydrated
+        return loadMusicians(queryIds(MOST_PROLIFIC_MUSICIANS, parameters), DEPTH_LIST);
+    }
+
+    @Override
+    public Map<Integer, Integer> countAlbumsByReleaseYear() {
+        Map<Integer, Integer> counts = Maps.newHashMap();
+        for (Map<String, Object> row : session.query(ALBUMS_BY_RELEASE_YEAR, ImmutableMap.of()).queryResults()) {
+            counts.put(((Number) row.get("year")).intValue(), ((Number) row.get("albumCount")).intValue());
+        }
+        return counts;
+    }
+
+    private Entity findExistingEntity(Entity entity, Class<? extends Entity> clazz) {
         Filters filters = new Filters();
         Collection<? extends Entity> collection = Sets.newLinkedHashSet();
         if (clazz.equals(Album.class)) {
@@ -100,44 +738,101 @@ public class  Neo4jDAO implements DAO {
         Entity existingEntity = null;
         if (!collection.isEmpty()) {
             existingEntity = collection.iterator().next();
-        }        return (T) existingEntity;
+        }
+        return existingEntity;
     }
 
     //new
     public <T extends Entity> void deleteAlbumInMusician(T entity){
-        Class clazz = entity.getClass();
-        T savedEntity = findExistingEntity(entity,clazz);
-        if(clazz.equals(Musician.class))
-        {
-            Musician deleteMusician = (Musician)savedEntity;
-            if (null != savedEntity) {
-                Collection<Album> albums =  deleteMusician.getAlbums();
-                for(Album a: albums){
-                    session.delete(a);
-                }
+        if (entity instanceof Musician) {
+            deleteAlbumsInMusicians(Collections.singletonList((Musician) entity));
+        } else {
+            session.delete(entity);
+            afterDelete(entity);
+        }
+    }
 
+    @Override
+    public void deleteAlbumsInMusicians(Collection<Musician> musicians) {
+        List<String> names = Lists.newArrayList();
+        List<Long> albumIds = Lists.newArrayList();
+        Map<Long, Entity> known = Maps.newHashMap();
+        for (Musician musician : musicians) {
+            names.add(musician.getName());
+            if (null != musician.getId()) {
+                known.put(musician.getId(), musician);
+            }
+            // the albums the musician holds are deleted too, even when they were not saved with it
+            if (null != musician.getAlbums()) {
+                for (Album album : musician.getAlbums()) {
+                    if (null != album.getId()) {
+                        albumIds.add(album.getId());
+                        known.put(album.getId(), album);
+                    }
+                }
             }
         }
+        Map<String, Object> row = session.query(DELETE_MUSICIANS_WITH_ALBUMS,
+                ImmutableMap.of("names", names, "albumIds", albumIds)).queryResults().iterator().next();
+        afterStoreDelete(row.get("deletedIds"), known, Album::new);
+        afterStoreDelete(row.get("musicianIds"), known, Musician::new);
+    }
 
+    public  <T extends Entity> void deleteMusicianAndMusicianInstrumentAlsoBeDeleted(T entity) {
+        if (entity instanceof Musician) {
+            deleteMusiciansAndMusicianInstruments(Collections.singletonList((Musician) entity));
+        } else {
             session.delete(entity);
+            afterDelete(entity);
+        }
+    }
 
-
+    @Override
+    public void deleteMusiciansAndMusicianInstruments(Collection<Musician> musicians) {
+        List<String> names = Lists.newArrayList();
+        Map<Long, Entity> known = Maps.newHashMap();
+        for (Musician musician : musicians) {
+            names.add(musician.getName());
+            if (null != musician.getId()) {
+                known.put(musician.getId(), musician);
+            }
+        }
+        Map<String, Object> row = session.query(DELETE_MUSICIANS_WITH_INSTRUMENTS,
+                ImmutableMap.of("names", names)).queryResults().iterator().next();
+        afterStoreDelete(row.get("deletedIds"), known, MusicianInstrument::new);
+        afterStoreDelete(row.get("musicianIds"), known, Musician::new);
     }
 
-    public  <T extends Entity> void deleteMusicianAndMusicianInstrumentAlsoBeDeleted(T entity) {
-        Class clazz = entity.getClass();
-        T savedEntity = findExistingEntity(entity,clazz);
-        if(clazz.equals(Musician.class))
-        {
-            Musician deleteMusician = (Musician)savedEntity;
-            Collection<MusicianInstrument> musicianInstruments = loadAll(MusicianInstrument.class);
-            for(MusicianInstrument m: musicianInstruments){
-                if(m.getMusician() == deleteMusician){
-                    session.delete(m);
-                }
+    // the session forgets the nodes deleted by a query, listeners get the entity held by the caller or one
+    // that only carries the id when the caller did not hold it
+    private void afterStoreDelete(Object deletedIds, Map<Long, Entity> known, Supplier<? extends Entity> stub) {
+        // lists may come back as arrays or lists depending on the driver
+        Iterable<?> ids = deletedIds instanceof Object[] ? Arrays.asList((Object[]) deletedIds) : (Iterable<?>) deletedIds;
+        for (Object value : ids) {
+            Long id = ((Number) value).longValue();
+            session.detachNodeEntity(id);
+            Entity entity = known.get(id);
+            if (null == entity) {
+                entity = stub.get();
+                entity.setId(id);
             }
+            afterDelete(entity);
+        }
+    }
+
+    private void fireSaved(Entity entity) {
+        for (DAOListener listener : listeners) {
+            listener.saved(entity);
+        }
+    }
+
+    private void afterDelete(Entity entity) {
+        if (null != identities && null != entity.getId()) {
+            identities.remove(entity.getId());
+        }
+        for (DAOListener listener : listeners) {
+            listener.deleted(entity);
         }
-        session.delete(entity);
     }
 
 
@@ -0,0 +1,231 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.Musician;
+import org.apache.commons.lang3.StringUtils;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Which Neo4j driver the DAOs talk to the store through and where the store is, read from properties so that the
+ * same code runs against an embedded store, or a server over HTTP or Bolt.
+ *
+ * The properties are:
+ * <ul>
+ *     <li>{@value #DRIVER}: embedded (the default), http or bolt.</li>
+ *     <li>{@value #URI}: where the store is. Optional for embedded, an impermanent store is used without it and a
+ *     directory with a file URI. Required for http and bolt, for example http://localhost:7474 or
+ *     bolt://localhost:7687.</li>
+ *     <li>{@value #USERNAME} and {@value #PASSWORD}: the credentials of the server, if it needs them.</li>
+ *     <li>{@value #CONNECTION_POOL_SIZE}: the number of connections kept to the server.</li>
+ * </ul>
+ *
+ * {@link #load()} reads {@value #RESOURCE} from the classpath when there is one, system properties with the same
+ * names override it.
+ */
+public final class Neo4jSettings {
+    public static final String DRIVER = "neo4j.driver";
+    public static final String URI = "neo4j.uri";
+    public static final String USERNAME = "neo4j.username";
+    public static final String PASSWORD = "neo4j.password";
+    public static final String CONNECTION_POOL_SIZE = "neo4j.connectionPoolSize";
+
+    public static final String RESOURCE = "neo4j.properties";
+
+    public enum Driver {
+        EMBEDDED("org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver", "neo4j-ogm-embedded-driver", "file"),
+        HTTP("org.neo4j.ogm.drivers.http.driver.HttpDriver", "neo4j-ogm-http-driver", "http", "https"),
+        BOLT("org.neo4j.ogm.drivers.bolt.driver.BoltDriver", "neo4j-ogm-bolt-driver", "bolt", "bolt+routing", "neo4j");
+
+        private final String driverClassName;
+        private final String artifactId;
+        private final String[] schemes;
+
+        Driver(String driverClassName, String artifactId, String... schemes) {
+            this.driverClassName = driverClassName;
+            this.artifactId = artifactId;
+            this.schemes = schemes;
+        }
+
+        /**
+         * Whether the OGM driver is on the classpath.
+         */
+        public boolean isAvailable() {
+            try {
+                Class.forName(driverClassName, false, Neo4jSettings.class.getClassLoader());
+                return true;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+
+        private boolean accepts(String scheme) {
+            for (String accepted : schemes) {
+                if (accepted.equalsIgnoreCase(scheme)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Driver driver;
+    private final String uri;
+    private final String username;
+    private final String password;
+    private final Integer connectionPoolSize;
+
+    private Neo4jSettings(Driver driver, String uri, String username, String password, Integer connectionPoolSize) {
+        this.driver = driver;
+        this.uri = uri;
+        this.username = username;
+        this.password = password;
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    /**
+     * An impermanent embedded store, what the tests use.
+     */
+    public static Neo4jSettings embedded() {
+        return new Neo4jSettings(Driver.EMBEDDED, null, null, null, null);
+    }
+
+    public static Neo4jSettings fromProperties(Properties properties) {
+        String driverName = StringUtils.trimToNull(properties.getProperty(DRIVER));
+        Driver driver;
+        if (null == driverName) {
+            driver = Driver.EMBEDDED;
+        } else {
+            try {
+                driver = Driver.valueOf(driverName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown Neo4j driver: " + driverName);
+            }
+        }
+
+        String uri = StringUtils.trimToNull(properties.getProperty(URI));
+        if (null == uri) {
+            if (Driver.EMBEDDED != driver) {
+                throw new IllegalArgumentException("The " + name(driver) + " driver needs " + URI);
+            }
+        } else if (!driver.accepts(java.net.URI.create(uri).getScheme())) {
+            throw new IllegalArgumentException("The URI " + uri + " cannot be used with the " + name(driver) + " driver");
+        }
+
+        String poolSize = StringUtils.trimToNull(properties.getProperty(CONNECTION_POOL_SIZE));
+        Integer connectionPoolSize = null;
+        if (null != poolSize) {
+            try {
+                connectionPoolSize = Integer.valueOf(poolSize);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Connection pool size should be a number: " + poolSize);
+            }
+            if (connectionPoolSize <= 0) {
+                throw new IllegalArgumentException("Connection pool size should be more than 0");
+            }
+        }
+
+        return new Neo4jSettings(driver, uri, StringUtils.trimToNull(properties.getProperty(USERNAME)),
+                properties.getProperty(PASSWORD), connectionPoolSize);
+    }
+
+    /**
+     * Reads the settings from {@value #RESOURCE} and the system properties.
+     */
+    public static Neo4jSettings load() {
+        Properties properties = new Properties();
+        try (InputStream in = Neo4jSettings.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (null != in) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + RESOURCE, e);
+        }
+        for (String name : new String[]{DRIVER, URI, USERNAME, PASSWORD, CONNECTION_POOL_SIZE}) {
+            String value = System.getProperty(name);
+            if (null != value) {
+                properties.setProperty(name, value);
+            }
+        }
+        return fromProperties(properties);
+    }
+
+    public Driver getDriver() {
+        return driver;
+    }
+
+    /**
+     * The URI of the store, null for an impermanent embedded store.
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Integer getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    public Configuration toConfiguration() {
+        Configuration.Builder builder = new Configuration.Builder();
+        if (null != uri) {
+            builder.uri(uri);
+        }
+        if (null != username) {
+            builder.credentials(username, null == password ? "" : password);
+        }
+        if (null != connectionPoolSize) {
+            builder.connectionPoolSize(connectionPoolSize);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Opens a session factory mapping the model classes through the selected driver, a {@link Neo4jDAO} is then
+     * created on one of its sessions. The indexes and uniqueness constraints of the natural keys are created in the
+     * store first with {@link SchemaManager#bootstrap(SessionFactory)}.
+     *
+     * @throws IllegalStateException when the driver is not on the classpath.
+     */
+    public SessionFactory openSessionFactory() {
+        if (!driver.isAvailable()) {
+            throw new IllegalStateException("The " + name(driver) + " driver needs " + driver.artifactId
+                    + " on the classpath");
+        }
+        SessionFactory sessionFactory = new SessionFactory(toConfiguration(), Musician.class.getPackage().getName());
+        try {
+            SchemaManager.bootstrap(sessionFactory);
+        } catch (RuntimeException e) {
+            sessionFactory.close();
+            throw e;
+        }
+        return sessionFactory;
+    }
+
+    @Override
+    public String toString() {
+        // without the credentials
+        String location = null == uri ? "impermanent" : redact(uri);
+        return name(driver) + " " + location;
+    }
+
+    private static String name(Driver driver) {
+        return driver.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String redact(String uri) {
+        java.net.URI parsed = java.net.URI.create(uri);
+        if (null == parsed.getUserInfo()) {
+            return uri;
+        }
+        return uri.replace(parsed.getRawUserInfo() + "@", "");
+    }
+}
@@ -0,0 +1,236 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.FetchPlan;
+import allaboutecm.dataaccess.Projection;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import org.neo4j.ogm.session.Session;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link DAO} that can be shared by threads. Every call borrows a session from a {@link SessionPool}, runs
+ * like {@link Neo4jDAO} does on it and gives it back, so concurrent calls never share a session.
+ *
+ * The entities returned are detached once the call is over: saving one of them again updates its node by id,
+ * and relationships that were not loaded with it are not loaded later. A stream keeps its session until it is
+ * consumed or closed.
+ *
+ * Unlike {@link Neo4jDAO}, the session does not remember which relationships an entity had when it was loaded,
+ * so saving a detached entity again only adds and updates relationships: one the caller removed from it (an
+ * album taken out of {@link allaboutecm.model.Musician#getAlbums()}, for example) stays in the store. Remove
+ * relationships with the delete methods instead.
+ */
+public class PooledNeo4jDAO implements DAO {
+    private final SessionPool pool;
+
+    private volatile int batchSize;
+
+    private final List<DAOListener> listeners = new CopyOnWriteArrayList<>();
+
+    public PooledNeo4jDAO(SessionPool pool) {
+        if (null == pool) {
+            throw new NullPointerException("Session pool cannot be null");
+        }
+        this.pool = pool;
+        this.batchSize = Neo4jDAO.DEFAULT_BATCH_SIZE;
+    }
+
+    public SessionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Registers a listener notified after every save and delete made through this DAO, from the thread that
+     * made it.
+     */
+    public void addListener(DAOListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(DAOListener listener) {
+        listeners.remove(listener);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of entities {@link #createOrUpdateAll(Collection)} writes in one transaction.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size should be more than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    private Neo4jDAO dao(Session session) {
+        Neo4jDAO dao = new Neo4jDAO(session);
+        dao.setBatchSize(batchSize);
+        for (DAOListener listener : listeners) {
+            dao.addListener(listener);
+        }
+        return dao;
+    }
+
+    private <R> R withSession(Function<Neo4jDAO, R> call) {
+        Session session = pool.borrow();
+        try {
+            return call.apply(dao(session));
+        } finally {
+            pool.release(session);
+        }
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return withSession(dao -> dao.load(clazz, id));
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        return withSession(dao -> dao.createOrUpdate(entity));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        return withSession(dao -> dao.createOrUpdateAll(entities));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return withSession(dao -> dao.loadAll(clazz));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> fetchAll(FetchPlan<T> plan) {
+        return withSession(dao -> dao.fetchAll(plan));
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int pageSize) {
+        Session session = pool.borrow();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                pool.release(session);
+            }
+        };
+        Iterator<T> pages;
+        try {
+            pages = dao(session).stream(clazz, pageSize).iterator();
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        Iterator<T> releasing = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                if (released.get()) {
+                    return false;
+                }
+                boolean hasNext = pages.hasNext();
+                if (!hasNext) {
+                    release.run();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public T next() {
+                return pages.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(releasing,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false).onClose(release);
+    }
+
+    @Override
+    public Projection project(Class<? extends Entity> clazz, String... properties) {
+        return withSession(dao -> dao.project(clazz, properties));
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        withSession(dao -> {
+            dao.delete(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends Entity> void deleteAlbumInMusician(T entity) {
+        withSession(dao -> {
+            dao.deleteAlbumInMusician(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends Entity> void deleteMusicianAndMusicianInstrumentAlsoBeDeleted(T entity) {
+        withSession(dao -> {
+            dao.deleteMusicianAndMusicianInstrumentAlsoBeDeleted(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAlbumsInMusicians(Collection<Musician> musicians) {
+        withSession(dao -> {
+            dao.deleteAlbumsInMusicians(musicians);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteMusiciansAndMusicianInstruments(Collection<Musician> musicians) {
+        withSession(dao -> {
+            dao.deleteMusiciansAndMusicianInstruments(musicians);
+            return null;
+        });
+    }
+
+    @Override
+    public Musician findMusicianByName(String name) {
+        return withSession(dao -> dao.findMusicianByName(name));
+    }
+
+    @Override
+    public Map<String, Musician> findMusiciansByNames(Collection<String> names) {
+        return withSession(dao -> dao.findMusiciansByNames(names));
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNameIgnoreCase(String name) {
+        return withSession(dao -> dao.findMusiciansByNameIgnoreCase(name));
+    }
+
+    @Override
+    public List<Musician> findMusiciansByNamePrefix(String prefix, int limit) {
+        return withSession(dao -> dao.findMusiciansByNamePrefix(prefix, limit));
+    }
+
+    @Override
+    public List<Musician> findMostProlificMusicians(int k, int startYear, int endYear) {
+        return withSession(dao -> dao.findMostProlificMusicians(k, startYear, endYear));
+    }
+
+    @Override
+    public Map<Integer, Integer> countAlbumsByReleaseYear() {
+        return withSession(Neo4jDAO::countAlbumsByReleaseYear);
+    }
+}
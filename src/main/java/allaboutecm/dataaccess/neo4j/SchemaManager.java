@@ -0,0 +1,215 @@
+package allaboutecm.dataaccess.neo4j;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.neo4j.ogm.annotation.CompositeIndex;
+import org.neo4j.ogm.annotation.Index;
+import org.neo4j.ogm.annotation.NodeEntity;
+import org.neo4j.ogm.annotation.Property;
+import org.neo4j.ogm.metadata.ClassInfo;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Creates the indexes and uniqueness constraints declared on the entities with {@link Index} and
+ * {@link CompositeIndex}, so that the natural key lookups of {@link Neo4jDAO} do not scan whole labels.
+ *
+ * {@link Neo4jSettings#openSessionFactory()} runs {@link #bootstrap(SessionFactory)}, run it right after creating
+ * a session factory any other way. Only the indexes and constraints missing from the store are created, then their
+ * state is read back from the store.
+ */
+public class SchemaManager {
+    private static final Logger LOGGER = LogManager.getLogger(SchemaManager.class);
+
+    private static final long DEFAULT_TIMEOUT_SECONDS = 60;
+
+    private final Session session;
+    private final List<IndexStatus> declared;
+
+    public SchemaManager(Session session, Collection<Class<?>> entityClasses) {
+        this.session = session;
+        this.declared = Lists.newArrayList();
+        for (Class<?> clazz : entityClasses) {
+            declare(clazz);
+        }
+    }
+
+    /**
+     * Creates the schema of every entity the session factory maps, waits for the indexes to be built and
+     * returns their state.
+     */
+    public static List<IndexStatus> bootstrap(SessionFactory sessionFactory) {
+        List<Class<?>> entityClasses = Lists.newArrayList();
+        for (ClassInfo classInfo : sessionFactory.metaData().persistentEntities()) {
+            if (!classInfo.isAbstract() && !classInfo.isInterface() && !classInfo.isRelationshipEntity()) {
+                entityClasses.add(classInfo.getUnderlyingClass());
+            }
+        }
+        Session session = sessionFactory.openSession();
+        try {
+            SchemaManager schemaManager = new SchemaManager(session, entityClasses);
+            schemaManager.create();
+            return schemaManager.await(DEFAULT_TIMEOUT_SECONDS);
+        } finally {
+            // OGM sessions have nothing to close, clearing drops what the session mapped so it can be collected
+            session.clear();
+        }
+    }
+
+    /**
+     * The indexes and constraints declared on the entities, with their state not read yet.
+     */
+    public List<IndexStatus> getDeclared() {
+        return declared;
+    }
+
+    /**
+     * Creates the declared indexes and constraints the store does not have yet.
+     */
+    public void create() {
+        for (IndexStatus status : status()) {
+            if (IndexStatus.State.MISSING == status.getState()) {
+                // schema changes cannot share a transaction with anything else, each one runs on its own
+                try {
+                    session.query(createStatement(status), ImmutableMap.of());
+                    LOGGER.info("Created {}", status);
+                } catch (RuntimeException e) {
+                    // a constraint cannot be created over duplicated keys, it stays missing in the states
+                    LOGGER.error("Cannot create {}: {}", status, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits up to timeoutSeconds for the indexes to be built and returns their state.
+     */
+    public List<IndexStatus> await(long timeoutSeconds) {
+        try {
+            session.query("CALL db.awaitIndexes($timeout)", ImmutableMap.of("timeout", timeoutSeconds));
+        } catch (RuntimeException e) {
+            // the indexes are still populating or one of them failed, the states below tell which
+            LOGGER.warn("Indexes not online after {} seconds: {}", timeoutSeconds, e.getMessage());
+        }
+        List<IndexStatus> statuses = status();
+        for (IndexStatus status : statuses) {
+            if (status.isOnline()) {
+                LOGGER.info("{}", status);
+            } else {
+                LOGGER.warn("{} {}", status, null == status.getFailureMessage() ? "" : status.getFailureMessage());
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Reads the state of every declared index and constraint from the store.
+     */
+    public List<IndexStatus> status() {
+        List<Map<String, Object>> indexes = Lists.newArrayList();
+        for (Map<String, Object> row : session.query("CALL db.indexes()", ImmutableMap.of()).queryResults()) {
+            indexes.add(row);
+        }
+
+        List<IndexStatus> statuses = Lists.newArrayListWithCapacity(declared.size());
+        for (IndexStatus index : declared) {
+            IndexStatus.State state = IndexStatus.State.MISSING;
+            String failureMessage = null;
+            for (Map<String, Object> row : indexes) {
+                boolean unique = String.valueOf(row.get("type")).contains("unique");
+                if (strings(row.get("tokenNames")).equals(ImmutableList.of(index.getLabel()))
+                        && strings(row.get("properties")).equals(index.getProperties())
+                        && unique == index.isUnique()) {
+                    Object failure = row.get("failureMessage");
+                    failureMessage = null == failure || "".equals(failure) ? null : failure.toString();
+                    state = state(row.get("state"));
+                    if (null == state) {
+                        state = IndexStatus.State.FAILED;
+                        failureMessage = "Unknown index state: " + row.get("state");
+                    }
+                }
+            }
+            statuses.add(new IndexStatus(index.getLabel(), index.getProperties(), index.isUnique(), state,
+                    failureMessage));
+        }
+        return statuses;
+    }
+
+    private void declare(Class<?> clazz) {
+        String label = label(clazz);
+        CompositeIndex compositeIndex = clazz.getAnnotation(CompositeIndex.class);
+        if (null != compositeIndex) {
+            if (compositeIndex.unique()) {
+                throw new IllegalArgumentException("Unique composite indexes need node keys, which " +
+                        "the community edition does not support: " + label);
+            }
+            List<String> properties = compositeIndex.value().length > 0
+                    ? Arrays.asList(compositeIndex.value()) : Arrays.asList(compositeIndex.properties());
+            declared.add(new IndexStatus(label, properties, false, null, null));
+        }
+
+        for (Class<?> c = clazz; null != c && !Object.class.equals(c); c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                Index index = field.getAnnotation(Index.class);
+                if (null != index) {
+                    Property property = field.getAnnotation(Property.class);
+                    String name = null == property || property.name().isEmpty() ? field.getName() : property.name();
+                    declared.add(new IndexStatus(label, ImmutableList.of(name), index.unique(), null, null));
+                }
+            }
+        }
+    }
+
+    private static String label(Class<?> clazz) {
+        NodeEntity nodeEntity = clazz.getAnnotation(NodeEntity.class);
+        if (null != nodeEntity && !nodeEntity.label().isEmpty()) {
+            return nodeEntity.label();
+        }
+        if (null != nodeEntity && !nodeEntity.value().isEmpty()) {
+            return nodeEntity.value();
+        }
+        return clazz.getSimpleName();
+    }
+
+    private static String createStatement(IndexStatus index) {
+        if (index.isUnique()) {
+            return "CREATE CONSTRAINT ON (n:`" + index.getLabel() + "`) ASSERT n.`" + index.getProperties().get(0)
+                    + "` IS UNIQUE";
+        }
+        return "CREATE INDEX ON :`" + index.getLabel() + "`(`" + String.join("`, `", index.getProperties()) + "`)";
+    }
+
+    // null for a state this version does not know
+    private static IndexStatus.State state(Object value) {
+        try {
+            return IndexStatus.State.valueOf(String.valueOf(value).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // lists may come back as arrays or lists depending on the driver
+    private static List<String> strings(Object value) {
+        List<String> result = Lists.newArrayList();
+        if (value instanceof Object[]) {
+            for (Object element : (Object[]) value) {
+                result.add(String.valueOf(element));
+            }
+        } else if (value instanceof Iterable) {
+            for (Object element : (Iterable<?>) value) {
+                result.add(String.valueOf(element));
+            }
+        }
+        return result;
+    }
+}
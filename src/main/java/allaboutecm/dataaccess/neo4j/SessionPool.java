@@ -0,0 +1,144 @@
+package allaboutecm.dataaccess.neo4j;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of OGM sessions. A {@link Session} must only be used by one thread at a time, so every worker
+ * borrows its own and gives it back when done. Sessions are opened on demand up to the maximum size, and are
+ * cleared when they are given back so that no entity loaded by one worker is seen by the next one.
+ */
+public class SessionPool {
+    private final SessionFactory sessionFactory;
+    private final int maxSize;
+    private final long timeoutMillis;
+
+    // given back sessions are reused last in first out, the most recently used one is borrowed first
+    private final BlockingDeque<Session> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @param timeoutMillis how long a borrow waits for a session when all of them are borrowed.
+     */
+    public SessionPool(SessionFactory sessionFactory, int maxSize, long timeoutMillis) {
+        if (null == sessionFactory) {
+            throw new NullPointerException("Session factory cannot be null");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size should be more than 0");
+        }
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout should not be negative");
+        }
+        this.sessionFactory = sessionFactory;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Returns an idle session, opens a new one when the pool is not full, or waits for one to be given back.
+     *
+     * @throws IllegalStateException when no session was given back within the timeout.
+     */
+    public Session borrow() {
+        borrows.incrementAndGet();
+        Session session = idle.pollFirst();
+        if (null != session) {
+            return session;
+        }
+        while (true) {
+            int count = opened.get();
+            if (count >= maxSize) {
+                break;
+            }
+            if (opened.compareAndSet(count, count + 1)) {
+                try {
+                    return sessionFactory.openSession();
+                } catch (RuntimeException e) {
+                    // the place taken for the session is given back, or the pool would shrink for good
+                    opened.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+
+        waits.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            session = idle.pollFirst(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a session", e);
+        } finally {
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+        if (null == session) {
+            timeouts.incrementAndGet();
+            throw new IllegalStateException("No session was given back within " + timeoutMillis + " ms");
+        }
+        return session;
+    }
+
+    /**
+     * Gives back a borrowed session. It is cleared first, the entities it loaded are detached.
+     */
+    public void release(Session session) {
+        if (null == session) {
+            throw new NullPointerException("Session cannot be null");
+        }
+        session.clear();
+        idle.offerFirst(session);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Number of sessions opened so far, borrowed or idle.
+     */
+    public int getOpened() {
+        return opened.get();
+    }
+
+    public int getIdle() {
+        return idle.size();
+    }
+
+    public int getBorrowed() {
+        return opened.get() - idle.size();
+    }
+
+    /**
+     * Number of borrows since the pool was created, including the ones that timed out.
+     */
+    public long getBorrows() {
+        return borrows.get();
+    }
+
+    /**
+     * Number of borrows that had to wait because every session was borrowed.
+     */
+    public long getWaits() {
+        return waits.get();
+    }
+
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+}
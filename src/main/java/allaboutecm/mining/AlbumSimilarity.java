@@ -0,0 +1,28 @@
+package allaboutecm.mining;
+
+/**
+ * How {@link ECMMiner#mostSimilarAlbums(int, allaboutecm.model.Album, AlbumSimilarity)} scores albums
+ * against the given album, either over the musicians featured in the albums or over their names.
+ */
+public enum AlbumSimilarity {
+    /**
+     * Exact number of musicians both albums feature.
+     */
+    OVERLAP,
+
+    /**
+     * Exact Jaccard similarity of the two lineups, shared musicians divided by all musicians of both albums.
+     */
+    JACCARD,
+
+    /**
+     * Jaccard similarity of the candidates found by MinHash signatures and LSH banding. Much faster on large
+     * catalogs, but an album sharing few musicians with the given album may be missed.
+     */
+    MINHASH,
+
+    /**
+     * BM25 similarity of the character n-grams in the album name and track names, see {@link AlbumTextIndex}.
+     */
+    NAMES
+}
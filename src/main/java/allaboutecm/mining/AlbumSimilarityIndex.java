@@ -0,0 +1,119 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Sets;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Exact album similarity over shared musicians, answered from the musician posting lists of a
+ * {@link MusicianAlbumIndex}. A query only reads the posting lists of the given album's musicians,
+ * albums sharing nobody with it are never looked at.
+ */
+public class AlbumSimilarityIndex {
+    private final MusicianAlbumIndex index;
+
+    public AlbumSimilarityIndex(MusicianAlbumIndex index) {
+        this.index = index;
+    }
+
+    public static AlbumSimilarityIndex build(Collection<Album> albums) {
+        return new AlbumSimilarityIndex(MusicianAlbumIndex.build(albums));
+    }
+
+    /**
+     * Returns the k albums most similar to the given one, the album itself excluded. Only albums sharing at
+     * least one musician are returned, albums with the same score keep their index order.
+     *
+     * @param similarity either {@link AlbumSimilarity#OVERLAP} or {@link AlbumSimilarity#JACCARD}.
+     */
+    public List<Album> mostSimilar(Album album, int k, AlbumSimilarity similarity) {
+        if (similarity != AlbumSimilarity.OVERLAP && similarity != AlbumSimilarity.JACCARD) {
+            throw new IllegalArgumentException("Exact similarity can only be OVERLAP or JACCARD");
+        }
+
+        int lineupSize = distinctLineupSize(album);
+        int[] musicianIds = knownMusicianIds(index, album);
+
+        // concatenating the posting lists and sorting them puts every album once per shared musician in a row
+        int total = 0;
+        for (int id : musicianIds) {
+            total += index.albumsOf(id).length;
+        }
+        int[] candidates = new int[total];
+        int filled = 0;
+        for (int id : musicianIds) {
+            int[] posting = index.albumsOf(id);
+            System.arraycopy(posting, 0, candidates, filled, posting.length);
+            filled += posting.length;
+        }
+        Arrays.sort(candidates);
+
+        TopK<Album> topK = new TopK<>(k);
+        int i = 0;
+        while (i < candidates.length) {
+            int albumId = candidates[i];
+            int overlap = 0;
+            while (i < candidates.length && candidates[i] == albumId) {
+                overlap++;
+                i++;
+            }
+            Album candidate = index.getAlbum(albumId);
+            if (candidate.equals(album)) {
+                continue;
+            }
+            if (similarity == AlbumSimilarity.OVERLAP) {
+                topK.offer(candidate, overlap);
+            } else {
+                int union = lineupSize + index.lineupOf(albumId).length - overlap;
+                topK.offer(candidate, (double) overlap / union);
+            }
+        }
+        return topK.toList();
+    }
+
+    public MusicianAlbumIndex getIndex() {
+        return index;
+    }
+
+    static int distinctLineupSize(Album album) {
+        Set<String> names = Sets.newHashSet();
+        if (null != album.getFeaturedMusicians()) {
+            for (Musician musician : album.getFeaturedMusicians()) {
+                names.add(musician.getName());
+            }
+        }
+        return names.size();
+    }
+
+    /**
+     * Sorted, distinct ids of the album's musicians that are known to the index.
+     */
+    static int[] knownMusicianIds(MusicianAlbumIndex index, Album album) {
+        if (null == album.getFeaturedMusicians()) {
+            return new int[0];
+        }
+        int[] ids = new int[album.getFeaturedMusicians().size()];
+        int size = 0;
+        for (Musician musician : album.getFeaturedMusicians()) {
+            int id = index.idOf(musician);
+            if (id >= 0) {
+                ids[size++] = id;
+            }
+        }
+        ids = Arrays.copyOf(ids, size);
+        Arrays.sort(ids);
+
+        int distinct = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+}
@@ -0,0 +1,222 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Inverted index of the character n-grams in album names and track names, scored with BM25.
+ *
+ * Text is lower cased, everything but letters and digits becomes a single space and every word is padded
+ * with spaces, so "The Koln Concert" gives the 3-grams " th", "the", "he ", " ko", ... Every album is one
+ * document made of its name and its tracks.
+ *
+ * Posting lists are compressed sparse rows: the postings of term t are albums[offsets[t]] until
+ * albums[offsets[t + 1]]. As BM25 does not depend on the query other than through its terms, the score of
+ * every posting is computed when the index is built, and a query only sums the impacts of its terms' postings.
+ */
+public class AlbumTextIndex {
+    public static final int DEFAULT_GRAM = 3;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final int gram;
+    private final List<Album> albums;
+    private final Map<String, Integer> termIds;
+    private final int[] offsets;
+    private final int[] postings;
+    private final float[] impacts;
+
+    private AlbumTextIndex(int gram, List<Album> albums, Map<String, Integer> termIds,
+                           int[] offsets, int[] postings, float[] impacts) {
+        this.gram = gram;
+        this.albums = albums;
+        this.termIds = termIds;
+        this.offsets = offsets;
+        this.postings = postings;
+        this.impacts = impacts;
+    }
+
+    public static AlbumTextIndex build(Collection<Album> albums) {
+        return build(albums, DEFAULT_GRAM);
+    }
+
+    public static AlbumTextIndex build(Collection<Album> albumCollection, int gram) {
+        if (gram <= 0) {
+            throw new IllegalArgumentException("n-gram length should be more than 0");
+        }
+        List<Album> albums = Lists.newArrayList(albumCollection);
+        Map<String, Integer> termIds = Maps.newHashMap();
+
+        // first pass: term frequencies of every album as (term id, tf) pairs, and document frequencies
+        int[][] documentTerms = new int[albums.size()][];
+        int[][] documentFrequencies = new int[albums.size()][];
+        int[] lengths = new int[albums.size()];
+        int[] df = new int[16];
+        long totalLength = 0;
+        for (int albumId = 0; albumId < albums.size(); albumId++) {
+            Map<String, Integer> tf = Maps.newHashMap();
+            for (String term : grams(text(albums.get(albumId)), gram)) {
+                tf.merge(term, 1, Integer::sum);
+                lengths[albumId]++;
+            }
+            totalLength += lengths[albumId];
+
+            int[] terms = new int[tf.size()];
+            int[] frequencies = new int[tf.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : tf.entrySet()) {
+                Integer termId = termIds.get(entry.getKey());
+                if (null == termId) {
+                    termId = termIds.size();
+                    termIds.put(entry.getKey(), termId);
+                    if (termId == df.length) {
+                        df = Arrays.copyOf(df, termId * 2);
+                    }
+                }
+                df[termId]++;
+                terms[i] = termId;
+                frequencies[i] = entry.getValue();
+                i++;
+            }
+            documentTerms[albumId] = terms;
+            documentFrequencies[albumId] = frequencies;
+        }
+
+        // second pass: fill the posting lists in album order with their BM25 impact
+        int termCount = termIds.size();
+        int[] offsets = new int[termCount + 1];
+        for (int termId = 0; termId < termCount; termId++) {
+            offsets[termId + 1] = offsets[termId] + df[termId];
+        }
+        int[] postings = new int[offsets[termCount]];
+        float[] impacts = new float[offsets[termCount]];
+        int[] filled = Arrays.copyOf(offsets, termCount);
+
+        double averageLength = albums.isEmpty() ? 0 : (double) totalLength / albums.size();
+        for (int albumId = 0; albumId < albums.size(); albumId++) {
+            double norm = K1 * (1 - B + B * (averageLength == 0 ? 0 : lengths[albumId] / averageLength));
+            int[] terms = documentTerms[albumId];
+            for (int i = 0; i < terms.length; i++) {
+                int termId = terms[i];
+                int tf = documentFrequencies[albumId][i];
+                double idf = Math.log(1 + (albums.size() - df[termId] + 0.5) / (df[termId] + 0.5));
+                int position = filled[termId]++;
+                postings[position] = albumId;
+                impacts[position] = (float) (idf * tf * (K1 + 1) / (tf + norm));
+            }
+        }
+        return new AlbumTextIndex(gram, albums, termIds, offsets, postings, impacts);
+    }
+
+    /**
+     * Returns the k albums whose name and tracks are the most similar to the given album's, the album itself
+     * excluded. Albums sharing no n-gram with it are not returned.
+     */
+    public List<Album> mostSimilar(Album album, int k) {
+        return search(text(album), k, album);
+    }
+
+    /**
+     * Returns the k albums whose name and tracks best match the given text.
+     */
+    public List<Album> search(String text, int k) {
+        return search(text, k, null);
+    }
+
+    public int termCount() {
+        return offsets.length - 1;
+    }
+
+    private List<Album> search(String text, int k, Album excluded) {
+        TopK<Album> topK = new TopK<>(k);
+
+        // every query term counts once, like a set of n-grams
+        int[] terms = new int[16];
+        int termCount = 0;
+        for (String term : grams(text, gram)) {
+            Integer termId = termIds.get(term);
+            if (null != termId) {
+                if (termCount == terms.length) {
+                    terms = Arrays.copyOf(terms, termCount * 2);
+                }
+                terms[termCount++] = termId;
+            }
+        }
+        Arrays.sort(terms, 0, termCount);
+
+        // (album id << 32 | posting position), sorted so the postings of one album are next to each other
+        long[] hits = new long[16];
+        int size = 0;
+        for (int i = 0; i < termCount; i++) {
+            int termId = terms[i];
+            if (i > 0 && termId == terms[i - 1]) {
+                continue;
+            }
+            for (int position = offsets[termId]; position < offsets[termId + 1]; position++) {
+                if (size == hits.length) {
+                    hits = Arrays.copyOf(hits, size * 2);
+                }
+                hits[size++] = ((long) postings[position] << 32) | position;
+            }
+        }
+        Arrays.sort(hits, 0, size);
+
+        int i = 0;
+        while (i < size) {
+            int albumId = (int) (hits[i] >>> 32);
+            double score = 0;
+            while (i < size && (int) (hits[i] >>> 32) == albumId) {
+                score += impacts[(int) hits[i]];
+                i++;
+            }
+            Album candidate = albums.get(albumId);
+            if (null == excluded || !candidate.equals(excluded)) {
+                topK.offer(candidate, score);
+            }
+        }
+        return topK.toList();
+    }
+
+    private static String text(Album album) {
+        StringBuilder text = new StringBuilder();
+        if (null != album.getAlbumName()) {
+            text.append(album.getAlbumName());
+        }
+        if (null != album.getTracks()) {
+            for (String track : album.getTracks()) {
+                text.append(' ').append(track);
+            }
+        }
+        return text.toString();
+    }
+
+    static List<String> grams(String text, int gram) {
+        List<String> result = Lists.newArrayList();
+        if (null == text) {
+            return result;
+        }
+        String normalised = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        if (normalised.isEmpty()) {
+            return result;
+        }
+        for (String word : normalised.split(" ")) {
+            String padded = " " + word + " ";
+            if (padded.length() <= gram) {
+                result.add(padded);
+                continue;
+            }
+            for (int i = 0; i + gram <= padded.length(); i++) {
+                result.add(padded.substring(i, i + gram));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+
+import java.util.List;
+
+/**
+ * Results of {@link ECMMiner#reports(java.util.Map)}. A report that was not requested is an empty list.
+ */
+public class CatalogReport {
+    private final List<Integer> busiestYears;
+    private final List<Album> mostExpensiveAlbums;
+    private final List<Album> highestRatedAlbums;
+    private final List<Album> bestSellerAlbums;
+    private final List<Musician> mostProlificMusicians;
+
+    CatalogReport(List<Integer> busiestYears, List<Album> mostExpensiveAlbums, List<Album> highestRatedAlbums,
+                  List<Album> bestSellerAlbums, List<Musician> mostProlificMusicians) {
+        this.busiestYears = busiestYears;
+        this.mostExpensiveAlbums = mostExpensiveAlbums;
+        this.highestRatedAlbums = highestRatedAlbums;
+        this.bestSellerAlbums = bestSellerAlbums;
+        this.mostProlificMusicians = mostProlificMusicians;
+    }
+
+    public List<Integer> getBusiestYears() {
+        return busiestYears;
+    }
+
+    public List<Album> getMostExpensiveAlbums() {
+        return mostExpensiveAlbums;
+    }
+
+    public List<Album> getHighestRatedAlbums() {
+        return highestRatedAlbums;
+    }
+
+    public List<Album> getBestSellerAlbums() {
+        return bestSellerAlbums;
+    }
+
+    public List<Musician> getMostProlificMusicians() {
+        return mostProlificMusicians;
+    }
+}
@@ -0,0 +1,82 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregators of the album reports fed by one scan of the albums. Only the requested reports are kept,
+ * and the scan of a range of albums can be merged with the scan of the range after it.
+ */
+final class CatalogScan {
+    private final YearHistogram years;
+    private final TopK<Album> prices;
+    private final TopK<Album> ratings;
+    private final TopK<Album> sales;
+
+    /**
+     * @param countYears    whether the albums are counted per release year.
+     * @param firstSequence position of the first album scanned, so that ties keep the order of the albums.
+     */
+    CatalogScan(Map<Report, Integer> requested, boolean countYears, long firstSequence) {
+        this.years = countYears ? new YearHistogram() : null;
+        this.prices = topK(requested, Report.MOST_EXPENSIVE_ALBUMS, firstSequence);
+        this.ratings = topK(requested, Report.HIGHEST_RATED_ALBUMS, firstSequence);
+        this.sales = topK(requested, Report.BEST_SELLER_ALBUMS, firstSequence);
+    }
+
+    private static TopK<Album> topK(Map<Report, Integer> requested, Report report, long firstSequence) {
+        Integer k = requested.get(report);
+        return null == k ? null : new TopK<>(k, null, firstSequence);
+    }
+
+    void add(Album album) {
+        if (null != years) {
+            years.addIfCovered(album.getReleaseYear(), 1);
+        }
+        // albums without a price or a rating are ignored, like the single report methods do
+        if (null != prices && null != album.getPrice()) {
+            prices.offer(album, album.getPrice());
+        }
+        if (null != ratings && null != album.getRating()) {
+            ratings.offer(album, album.getRating());
+        }
+        if (null != sales) {
+            sales.offer(album, album.getSales());
+        }
+    }
+
+    static CatalogScan merge(CatalogScan left, CatalogScan right) {
+        if (null != left.years) {
+            left.years.addAll(right.years);
+        }
+        if (null != left.prices) {
+            left.prices.addAll(right.prices);
+        }
+        if (null != left.ratings) {
+            left.ratings.addAll(right.ratings);
+        }
+        if (null != left.sales) {
+            left.sales.addAll(right.sales);
+        }
+        return left;
+    }
+
+    List<Integer> busiestYears(int k) {
+        return years.busiestYears(k);
+    }
+
+    List<Album> mostExpensiveAlbums() {
+        return null == prices ? Lists.newArrayList() : prices.toList();
+    }
+
+    List<Album> highestRatedAlbums() {
+        return null == ratings ? Lists.newArrayList() : ratings.toList();
+    }
+
+    List<Album> bestSellerAlbums() {
+        return null == sales ? Lists.newArrayList() : sales.toList();
+    }
+}
@@ -0,0 +1,143 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Undirected graph of musicians who have been featured on the same albums.
+ *
+ * Musicians are dense int ids (see {@link MusicianAlbumIndex}) and edges are stored in compressed sparse row
+ * form: the neighbours of musician m are neighbours[offsets[m]] until neighbours[offsets[m + 1]], sorted by id,
+ * and weights holds the number of albums the two musicians share. There are no per-edge objects.
+ */
+public class CollaborationGraph {
+
+    /**
+     * Receives the neighbours of a musician, see {@link #forEachNeighbour(int, NeighbourVisitor)}.
+     */
+    public interface NeighbourVisitor {
+        void visit(int neighbour, int sharedAlbums);
+    }
+
+    private final MusicianAlbumIndex index;
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final int[] weights;
+
+    private CollaborationGraph(MusicianAlbumIndex index, int[] offsets, int[] neighbours, int[] weights) {
+        this.index = index;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.weights = weights;
+    }
+
+    public static CollaborationGraph build(Collection<Album> albums) {
+        return build(MusicianAlbumIndex.build(albums));
+    }
+
+    public static CollaborationGraph build(MusicianAlbumIndex index) {
+        int n = index.musicianCount();
+        int[] offsets = new int[n + 1];
+        int[] neighbours = new int[16];
+        int[] weights = new int[16];
+
+        // shared[other] counts albums shared with the current musician, touched lists the others to reset
+        int[] shared = new int[n];
+        int[] touched = new int[n];
+        int edges = 0;
+        for (int musician = 0; musician < n; musician++) {
+            int touchedCount = 0;
+            for (int albumId : index.albumsOf(musician)) {
+                for (int other : index.lineupOf(albumId)) {
+                    if (other != musician && shared[other]++ == 0) {
+                        touched[touchedCount++] = other;
+                    }
+                }
+            }
+            Arrays.sort(touched, 0, touchedCount);
+
+            if (edges + touchedCount > neighbours.length) {
+                int capacity = Math.max(neighbours.length * 2, edges + touchedCount);
+                neighbours = Arrays.copyOf(neighbours, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                int other = touched[i];
+                neighbours[edges] = other;
+                weights[edges] = shared[other];
+                edges++;
+                shared[other] = 0;
+            }
+            offsets[musician + 1] = edges;
+        }
+        return new CollaborationGraph(index, offsets, Arrays.copyOf(neighbours, edges), Arrays.copyOf(weights, edges));
+    }
+
+    public MusicianAlbumIndex getIndex() {
+        return index;
+    }
+
+    public int musicianCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Number of undirected edges, every collaboration is counted once.
+     */
+    public int edgeCount() {
+        return neighbours.length / 2;
+    }
+
+    /**
+     * Number of distinct musicians the musician has been featured with.
+     */
+    public int degree(int musician) {
+        return offsets[musician + 1] - offsets[musician];
+    }
+
+    /**
+     * The i-th neighbour of the musician, neighbours are sorted by id.
+     */
+    public int neighbour(int musician, int i) {
+        return neighbours[offsets[musician] + checkPosition(musician, i)];
+    }
+
+    /**
+     * Number of albums shared with the i-th neighbour of the musician.
+     */
+    public int sharedAlbums(int musician, int i) {
+        return weights[offsets[musician] + checkPosition(musician, i)];
+    }
+
+    /**
+     * Number of albums both musicians are featured in, 0 when they never played together.
+     */
+    public int weight(int musician, int other) {
+        int position = Arrays.binarySearch(neighbours, offsets[musician], offsets[musician + 1], other);
+        return position < 0 ? 0 : weights[position];
+    }
+
+    public void forEachNeighbour(int musician, NeighbourVisitor visitor) {
+        for (int i = offsets[musician]; i < offsets[musician + 1]; i++) {
+            visitor.visit(neighbours[i], weights[i]);
+        }
+    }
+
+    public Musician getMusician(int musician) {
+        return index.getMusician(musician);
+    }
+
+    public int idOf(Musician musician) {
+        return index.idOf(musician);
+    }
+
+    private int checkPosition(int musician, int i) {
+        if (i < 0 || i >= degree(musician)) {
+            throw new IndexOutOfBoundsException("Musician " + musician + " has no neighbour " + i);
+        }
+        return i;
+    }
+}
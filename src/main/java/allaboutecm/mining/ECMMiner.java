@@ -1,13 +1,21 @@
 package allaboutecm.mining;
 
 import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.FetchPlan;
+import allaboutecm.dataaccess.Projection;
 import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
 import allaboutecm.model.MusicalInstrument;
 import allaboutecm.model.Musician;
 import allaboutecm.model.MusicianInstrument;
 import com.google.common.collect.*;
+import com.google.common.primitives.Ints;
+import org.apache.commons.lang3.Validate;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
@@ -19,8 +27,155 @@ public class ECMMiner {
 
     private final DAO dao;
 
+    // when set, aggregations that the DAO can run inside the store are pushed down to it
+    private boolean pushdown;
+
+    // when set, album scans that score one property read only that property and load only the albums returned
+    private boolean projection;
+
+    // when set, relationships the computations follow are loaded with their entities by a fetch plan
+    private boolean fetchPlans;
+
+    // when set, the loaded collections are split in ranges aggregated by the workers of this pool
+    private ForkJoinPool pool;
+    private int minRange;
+
+    // when positive, single-threaded album scans read the albums this many at a time instead of all at once
+    private int pageSize;
+
+    // when set, mostSimilarAlbums reuses its indexes between queries, see setCachedSimilarity
+    private boolean cachedSimilarity;
+    private final SimilarityIndexes similarityIndexes;
+
     public ECMMiner(DAO dao) {
         this.dao = dao;
+        this.pushdown = false;
+        this.projection = false;
+        this.fetchPlans = false;
+        this.pool = null;
+        this.minRange = ForkJoinAggregation.MIN_RANGE;
+        this.pageSize = 0;
+        this.cachedSimilarity = false;
+        this.similarityIndexes = newSimilarityIndexes();
+    }
+
+    private SimilarityIndexes newSimilarityIndexes() {
+        return new SimilarityIndexes(() -> fetchAll(FetchPlan.ALBUM_FEATURED_MUSICIANS),
+                () -> dao.loadAll(Album.class));
+    }
+
+    public boolean isPushdown() {
+        return pushdown;
+    }
+
+    public void setPushdown(boolean pushdown) {
+        this.pushdown = pushdown;
+    }
+
+    public boolean isProjection() {
+        return projection;
+    }
+
+    /**
+     * Ranks albums and counts their years over projected properties (see {@link DAO#project}) instead of
+     * loaded albums. The k albums ranked are then loaded one by one.
+     */
+    public void setProjection(boolean projection) {
+        this.projection = projection;
+    }
+
+    public boolean isFetchPlans() {
+        return fetchPlans;
+    }
+
+    /**
+     * Loads the entities of the computations that follow relationships with a {@link FetchPlan}, so that
+     * the relationships are loaded in the same query whatever the session already holds.
+     */
+    public void setFetchPlans(boolean fetchPlans) {
+        this.fetchPlans = fetchPlans;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Runs the computations in parallel in the given pool, or single-threaded when it is null.
+     * Both modes return the same results in the same order.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public boolean isCachedSimilarity() {
+        return cachedSimilarity;
+    }
+
+    /**
+     * Makes {@link #mostSimilarAlbums(int, Album, AlbumSimilarity)} build its indexes on the first query and reuse
+     * them, instead of building them from the catalog for every query. The indexes only follow the catalog when
+     * {@link #getSimilarityIndexes()} is registered as a listener of the DAO, or invalidated after every change.
+     */
+    public void setCachedSimilarity(boolean cachedSimilarity) {
+        this.cachedSimilarity = cachedSimilarity;
+        similarityIndexes.invalidate();
+    }
+
+    /**
+     * The indexes {@link #mostSimilarAlbums(int, Album, AlbumSimilarity)} reuses between queries when
+     * {@link #setCachedSimilarity(boolean)} is set.
+     */
+    public SimilarityIndexes getSimilarityIndexes() {
+        return similarityIndexes;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Streams the albums page by page for the computations that only keep a bounded aggregate of them
+     * (busiest years, the album rankings and their reports), or loads them all at once when it is 0.
+     * Paging is only used single-threaded, a pool needs all the albums to split them.
+     */
+    public void setPageSize(int pageSize) {
+        Validate.isTrue(pageSize >= 0, "Page size should not be negative");
+        this.pageSize = pageSize;
+    }
+
+    // smallest range of elements aggregated by one task, so that tests can split small inputs
+    void setMinRange(int minRange) {
+        Validate.isTrue(minRange > 0, "Minimum range should be more than 0");
+        this.minRange = minRange;
+    }
+
+    private <A> A aggregate(int size, ForkJoinAggregation.RangeAggregator<A> aggregator, BinaryOperator<A> merge) {
+        if (null == pool) {
+            return aggregator.aggregate(0, size);
+        }
+        return ForkJoinAggregation.aggregate(pool, size, minRange, aggregator, merge);
+    }
+
+    private <T extends Entity> Collection<T> fetchAll(FetchPlan<T> plan) {
+        return fetchPlans ? dao.fetchAll(plan) : dao.loadAll(plan.getRootClass());
+    }
+
+    private boolean paged() {
+        return pageSize > 0 && null == pool;
+    }
+
+    private Iterable<Album> pagedAlbums() {
+        return dao.stream(Album.class, pageSize)::iterator;
+    }
+
+    private static <T> List<T> asList(Collection<T> collection) {
+        return collection instanceof List ? (List<T>) collection : Lists.newArrayList(collection);
+    }
+
+    private static Map<String, Integer> mergeCounts(Map<String, Integer> left, Map<String, Integer> right) {
+        right.forEach((name, count) -> left.merge(name, count, Integer::sum));
+        return left;
     }
 
     /**
@@ -45,65 +200,45 @@ public class ECMMiner {
             }
         }
 
+        // count and rank inside the store, only the k musicians found are loaded
+        if (pushdown) {
+            return dao.findMostProlificMusicians(k, startYear, endYear);
+        }
 
-
-
-
-        Collection<Musician> musicians = dao.loadAll(Musician.class);
+        List<Musician> musicians = asList(fetchAll(FetchPlan.MUSICIAN_ALBUMS));
         Map<String, Musician> nameMap = Maps.newHashMap();
         for (Musician m : musicians) {
             nameMap.put(m.getName(), m);
         }
 
-        ListMultimap<String, Album> multimap = MultimapBuilder.treeKeys().arrayListValues().build();
-        ListMultimap<Integer, Musician> countMap = MultimapBuilder.treeKeys().arrayListValues().build();
-
-        for (Musician musician : musicians) {
-            Set<Album> albums = musician.getAlbums();
-            for (Album album : albums) {
-                boolean toInclude =
-                        !((startYear > 0 && album.getReleaseYear() < startYear) ||
-                                (endYear > 0 && album.getReleaseYear() > endYear));
-
-                if (toInclude) {
-                    multimap.put(musician.getName(), album);
+        // number of albums released in [startYear, endYear] by musician name
+        Map<String, Integer> albumCounts = aggregate(musicians.size(), (from, to) -> {
+            Map<String, Integer> counts = Maps.newHashMap();
+            for (Musician musician : musicians.subList(from, to)) {
+                Set<Album> albums = musician.getAlbums();
+                // a musician loaded without any album relationship has none
+                if (null == albums) {
+                    continue;
                 }
-            }
-        }
-        Map<String, Collection<Album>> albumMultimap = multimap.asMap();
-
-        for (String name : albumMultimap.keySet()) {
-            Collection<Album> albums = albumMultimap.get(name);
-            int size = albums.size();
-            countMap.put(size, nameMap.get(name));
-        }
+                for (Album album : albums) {
+                    boolean toInclude =
+                            !((startYear > 0 && album.getReleaseYear() < startYear) ||
+                                    (endYear > 0 && album.getReleaseYear() > endYear));
 
-        List<Musician> result = Lists.newArrayList();
-        List<Integer> sortedKeys = Lists.newArrayList(countMap.keySet());
-        sortedKeys.sort(Ordering.natural().reverse());
-
-
-        // this for loop is used frequently in this class, this makes sure with parameter K, is returning proper value
-        for (Integer count : sortedKeys) {
-            List<Musician> list = countMap.get(count);
-            if (list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-                break;
-            }
-            if (result.size() + list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
+                    if (toInclude) {
+                        counts.merge(musician.getName(), 1, Integer::sum);
+                    }
                 }
-            } else {
-                result.addAll(list);
             }
-        }
+            return counts;
+        }, ECMMiner::mergeCounts);
 
-        return result;
+        // musicians with the same number of albums are returned in name order
+        TopK<Musician> topK = new TopK<>(k, Comparator.comparing(Musician::getName));
+        for (Map.Entry<String, Integer> entry : albumCounts.entrySet()) {
+            topK.offer(nameMap.get(entry.getKey()), entry.getValue());
+        }
+        return topK.toList();
     }
 
     /**
@@ -117,72 +252,36 @@ public class ECMMiner {
         }
 
         // Loading all the all the MusicianInstruments objects in Collection.
-        Collection<MusicianInstrument> musicianInstrumentsCollection = dao.loadAll(MusicianInstrument.class);
-
-        // nameMusical = stores musicalInstrument name and MusicalInstrument's object as multimap.
-        ListMultimap<String, MusicalInstrument> nameMusical = MultimapBuilder.treeKeys().arrayListValues().build();
-        // stores musician's number of instrument played and musician object as multimap.
-        ListMultimap<Integer, Musician> countMap = MultimapBuilder.treeKeys().arrayListValues().build();
+        List<MusicianInstrument> musicianInstruments = asList(fetchAll(FetchPlan.MUSICIAN_INSTRUMENTS));
 
         Map<String, Musician> musicianNameMap = Maps.newHashMap();
-
-
-        // loops through all the musicianInstruments and fills musicianName map and nameMusical multimap.
-        for (MusicianInstrument m : musicianInstrumentsCollection) {
+        for (MusicianInstrument m : musicianInstruments) {
             musicianNameMap.put(m.getMusician().getName(), m.getMusician());
-            for(MusicalInstrument mi : m.getMusicalInstruments())
-            {
-                nameMusical.put(m.getMusician().getName(),mi);
-            }
         }
 
-        //converts multimap to map nameMusicalInstrument, keeping the musicianName and collection of single instruments
-        Map<String, Collection<MusicalInstrument>> nameMusicalInstrument = nameMusical.asMap();
-
-
-        // loops through all the nameMusicalInstruments by key, which is name of the musician, to get counts of his number of
-        // instruments involvement.
-        for (String name : nameMusicalInstrument.keySet()) {
-
-            Set<MusicalInstrument> allUniqueInstruments = new HashSet<>();
-
-            Collection<MusicalInstrument> musicalInstruments = nameMusicalInstrument.get(name);
-
-            // to make sure that all unique musical instruments are counted, not duplicates
-            for (MusicalInstrument m : musicalInstruments) {
-                if(!allUniqueInstruments.contains(m))
-                {
-                    allUniqueInstruments.add(m);
-                }
+        // stores musician's name and the distinct musical instruments they play,
+        // the set makes sure that all unique musical instruments are counted, not duplicates
+        Map<String, Set<MusicalInstrument>> nameMusicalInstrument = aggregate(musicianInstruments.size(), (from, to) -> {
+            Map<String, Set<MusicalInstrument>> instruments = Maps.newHashMap();
+            for (MusicianInstrument m : musicianInstruments.subList(from, to)) {
+                instruments.computeIfAbsent(m.getMusician().getName(), name -> new HashSet<>())
+                        .addAll(m.getMusicalInstruments());
             }
-
-            countMap.put(allUniqueInstruments.size(), musicianNameMap.get(name));
-        }
-
-        List<Musician> result = Lists.newArrayList();
-        List<Integer> sortedKeys = Lists.newArrayList(countMap.keySet());
-        sortedKeys.sort(Ordering.natural().reverse());
-
-        // this for loop is used frequently in this class, this makes sure parameter K is returning proper value
-        for (Integer count : sortedKeys) {
-            List<Musician> list = countMap.get(count);
-            if (list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-                break;
-            }
-            if (result.size() + list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-            } else {
-                result.addAll(list);
-            }
-        }
-        return result;
+            return instruments;
+        }, (left, right) -> {
+            right.forEach((name, instruments) -> left.merge(name, instruments, (a, b) -> {
+                a.addAll(b);
+                return a;
+            }));
+            return left;
+        });
+
+        // musicians playing the same number of instruments are returned in name order
+        TopK<Musician> topK = new TopK<>(k, Comparator.comparing(Musician::getName));
+        for (Map.Entry<String, Set<MusicalInstrument>> entry : nameMusicalInstrument.entrySet()) {
+            topK.offer(musicianNameMap.get(entry.getKey()), entry.getValue().size());
+        }
+        return topK.toList();
     }
 
     /**
@@ -195,80 +294,29 @@ public class ECMMiner {
             throw new IllegalArgumentException("number of most social musician to return should be more than 0");
         }
 
-        Collection<Album> albumCollection = dao.loadAll(Album.class);
-        Map<String, Musician> nameMap = Maps.newHashMap();
-
-        for (Album m : albumCollection) {
-            for (Musician musician : m.getFeaturedMusicians()) {
-                nameMap.put(musician.getName(), musician);
-            }
-        }
-
-        ListMultimap<Integer, Musician> countMap = MultimapBuilder.treeKeys().arrayListValues().build();
-
+        Collection<Album> albumCollection = fetchAll(FetchPlan.ALBUM_FEATURED_MUSICIANS);
 
-        /* to loop through all the individual musicians, and fills countMap, a MultiMap which stores number of other
-                  musicians they worked with and the Musician Object.
-        */
-        for (String singleMusicianName : nameMap.keySet()) {
-            Set<Musician> teamMateMusicians = new HashSet<>();
+        // one pass over the albums gives every musician a dense id and the albums they are featured in
+        MusicianAlbumIndex index = MusicianAlbumIndex.build(albumCollection);
 
-            // loops through all the albums, gets each album's musicians
-            for (Album singleAlbum : albumCollection) {
-                List<Musician> CurrentAlbumMusicians = singleAlbum.getFeaturedMusicians();
-                if (CurrentAlbumMusicians.contains(nameMap.get(singleMusicianName))) {
-                    List<Musician> albumOtherMusicians = Lists.newArrayList();
-                    for(Musician a : CurrentAlbumMusicians){
+        // number of other musicians each musician worked with, indexed by musician id
+        int[] collaborators = aggregate(index.musicianCount(), index::collaboratorCounts, Ints::concat);
 
-                        /* inserts other musicians into the list, make sure current musician(for whom we are counting the
-                         *     number of musician they worked with) is not inserted
-                         * */
-                        if(a != nameMap.get(singleMusicianName)){
-                            albumOtherMusicians.add(a);
-                        }
-                    }
-
-                    for (Musician m : albumOtherMusicians) {
-                        if(!teamMateMusicians.contains(m))
-                        {
-                            teamMateMusicians.add(m);
-                        }
-                    }
-                }
-            }
-            countMap.put(teamMateMusicians.size(), nameMap.get(singleMusicianName));
+        // musicians who worked with the same number of musicians are returned in the order they were first featured
+        TopK<Musician> topK = new TopK<>(k);
+        for (int id = 0; id < index.musicianCount(); id++) {
+            topK.offer(index.getMusician(id), collaborators[id]);
         }
 
+        return topK.toList();
+    }
 
-
-        List<Musician> result = Lists.newArrayList();
-        List<Integer> sortedKeys = Lists.newArrayList(countMap.keySet());
-
-        sortedKeys.sort(Ordering.natural().reverse());
-
-        for (Integer count : sortedKeys) {
-            // use current count to get a musician
-            List<Musician> list = countMap.get(count);
-            //if current number of albums already bigger than we need, break loop
-            if (list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-                break;
-            }
-            //if last number of albums + current number of albums >= we need, add Album into result until it is full
-            if (result.size() + list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-            } else {
-                result.addAll(list);
-            }
-        }
-
-        return result;
+    /**
+     * Graph of the musicians who have been featured together on albums, with the number of albums they share.
+     * Build it once and reuse it for analytics that need the collaborations.
+     */
+    public CollaborationGraph collaborationGraph() {
+        return CollaborationGraph.build(fetchAll(FetchPlan.ALBUM_FEATURED_MUSICIANS));
     }
 
     /**
@@ -282,55 +330,49 @@ public class ECMMiner {
             throw new IllegalArgumentException("Busiest Years You Want should bigger than 0");
         }
         notNull(k);
-        //get all albums from database
-        Collection<Album> albums = dao.loadAll(Album.class);
-        //Map(year,album)
-        ListMultimap<Integer, Album> multimap = MultimapBuilder.treeKeys().arrayListValues().build();
-        //Get each year to reflect each album
-        for (Album a : albums) {
-            multimap.put(a.getReleaseYear(), a);
-        }
-        //transfer ListMultimap(Year,Album) to Map(Year, List<Album>)
-        Map<Integer, Collection<Album>> yearAlbum = multimap.asMap();
-        //build a ListMultimap(Count, Year) which can use as.Map() to transfer to Map(Count,list<Year>)
-        ListMultimap<Integer, Integer> countMap = MultimapBuilder.treeKeys().arrayListValues().build();
-        //Use for loop to divide different year and use size() to count how many album in each year
-        for (Integer year : yearAlbum.keySet()) {
-            Collection<Album> albums1 = yearAlbum.get(year);
-            int count = albums1.size();
-            countMap.put(count, year);
-        }
-        //build a empty arrayList to prepare to store result
-        List<Integer> result = Lists.newArrayList();
-        //Get all count number from countMap.count and sort them
-        List<Integer> sortedKeys = Lists.newArrayList(countMap.keySet());
-        //*****Sort it From big to small
-        sortedKeys.sort(Ordering.natural().reverse());
-        // From big count number to small, to add value in result
-        for (Integer count : sortedKeys) {
-            //Use current count of albums to get Year
-            List<Integer> list = countMap.get(count);
-            //if current number of year already bigger than we need, put Current Year to result and break loop
-            if (list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-                break;
+        //one counter per year, its size does not depend on the number of albums
+        YearHistogram histogram = new YearHistogram();
+        if (pushdown) {
+            //the store counts the albums, no album is loaded
+            for (Map.Entry<Integer, Integer> entry : dao.countAlbumsByReleaseYear().entrySet()) {
+                histogram.addIfCovered(entry.getKey(), entry.getValue());
             }
-            //if last number of year + current number of Year >= we need, put Current Year into result until it is full
-            if (result.size() + list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
+        } else if (projection) {
+            Projection rows = dao.project(Album.class, "releaseYear");
+            double[] years = rows.column("releaseYear");
+            histogram = aggregate(rows.size(), (from, to) -> {
+                YearHistogram partial = new YearHistogram();
+                for (int row = from; row < to; row++) {
+                    //a missing release year is projected as NaN
+                    if (!Double.isNaN(years[row])) {
+                        partial.addIfCovered((int) years[row], 1);
+                    }
                 }
-            } else {
-                result.addAll(list);
+                return partial;
+            }, (left, right) -> {
+                left.addAll(right);
+                return left;
+            });
+        } else if (paged()) {
+            for (Album a : pagedAlbums()) {
+                histogram.addIfCovered(a.getReleaseYear(), 1);
             }
-        }
-
-
-        return result;
+        } else {
+            List<Album> albums = asList(dao.loadAll(Album.class));
+            histogram = aggregate(albums.size(), (from, to) -> {
+                YearHistogram partial = new YearHistogram();
+                for (Album a : albums.subList(from, to)) {
+                    partial.addIfCovered(a.getReleaseYear(), 1);
+                }
+                return partial;
+            }, (left, right) -> {
+                left.addAll(right);
+                return left;
+            });
+        }
+        //albums without a valid release year are not counted
+        //years with the same number of albums are returned from the earliest to the latest
+        return histogram.busiestYears(k);
     }
 
 
@@ -339,11 +381,25 @@ public class ECMMiner {
      * For example, it can be defined over the musicians in albums, the similarity between names
      * of the albums & tracks, etc.
      *
+     * Here albums are ranked by the number of musicians they share with the given album.
+     *
      * @Param k the number of albums to be returned.
      * @Param album
      */
 
     public List<Album> mostSimilarAlbums(int k, Album album) {
+        return mostSimilarAlbums(k, album, AlbumSimilarity.OVERLAP);
+    }
+
+    /**
+     * Most similar albums to a give album, over the musicians featured in the albums or over the names
+     * of the albums & tracks.
+     *
+     * @Param k the number of albums to be returned.
+     * @Param album
+     * @Param similarity how albums are scored, see {@link AlbumSimilarity}.
+     */
+    public List<Album> mostSimilarAlbums(int k, Album album, AlbumSimilarity similarity) {
         if (k <= 0){
             throw new IllegalArgumentException("Similar Albums Number You Want should bigger than 0");
         }
@@ -351,75 +407,11 @@ public class ECMMiner {
         if (album == null){
             throw new NullPointerException("Album can not be null");
         }
-        notNull(album);
-        notNull(k);
-        //Get all target musicians from the parameter Album as a list
-        Collection<Musician> targetMusicians = album.getFeaturedMusicians();
-        //Build a Map(Album, List<musicianName>)
-        Map<Album, List<String>> AlbumMusician = Maps.newHashMap();
-        //Get all albums from database that could be get musicians and compare with target musicians
-        Collection<Album> albums = dao.loadAll(Album.class);
-        //Choose each musician in target musicians
-        for (Musician targetMusician : targetMusicians) {
-            //Choose each album in all albums
-            for (Album a : albums) {
-                //delete the parameter album from the whole albums, add all musicians from current album into the list
-                Collection<Musician> allMusicians = Lists.newArrayList();
-                if(a != album){
-                    allMusicians = a.getFeaturedMusicians();
-                }
-                //for each musician from current album's musicians, if the musician == current target musician
-                //build a List that store current album's overlap musician
-                //put Map(current Album, overlap musician Name List)
-                List<String> musicianNames = Lists.newArrayList();
-                for (Musician am : allMusicians) {
-                    if (am == targetMusician) {
-                        musicianNames.add(targetMusician.getName());
-                        AlbumMusician.put(a, musicianNames);
-                    }
-                }
-            }
-        }
-        //countMap<number of Overlap musicians, Album>
-        ListMultimap<Integer, Album> countMap = MultimapBuilder.treeKeys().arrayListValues().build();
-        //get the number of overlap musicians by size()
-        for (Album a1 : AlbumMusician.keySet()) {
-            List<String> musicians1 = AlbumMusician.get(a1);
-            int count = musicians1.size();
-            countMap.put(count, a1);
-        }
-
-        //build a empty arrayList to prepare to store result
-        List<Album> result = Lists.newArrayList();
-        //Get all count number from countMap.count and sort them
-        List<Integer> sortedKeys = Lists.newArrayList(countMap.keySet());
-        //*****Sort it From big to small
-        sortedKeys.sort(Ordering.natural().reverse());
-        // From big count number to small, to add value in result
-        for (Integer count : sortedKeys) {
-            //Use current count of overlap musicians to get Album
-            List<Album> list = countMap.get(count);
-            //if current number of albums already bigger than we need, break loop
-            if (list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-                break;
-            }
-            //if last number of albums + current number of albums >= we need, add Album into result until it is full
-            if (result.size() + list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-            } else {
-                result.addAll(list);
-            }
-        }
-
-        return result;
-
+        notNull(similarity);
+        //a query only reads the posting lists of the given album's musicians or n-grams, or its LSH buckets.
+        //Without the cached indexes they are built from the catalog as it is now
+        SimilarityIndexes indexes = cachedSimilarity ? similarityIndexes : newSimilarityIndexes();
+        return indexes.mostSimilar(album, k, similarity);
     }
 
     /**
@@ -433,47 +425,8 @@ public class ECMMiner {
             throw new IllegalArgumentException("Expensive Price You Want should bigger than 0");
         }
         notNull(k);
-        //get all albums from database
-        Collection<Album> albums = dao.loadAll(Album.class);
-        //Map(price,album)
-        ListMultimap<Double, Album> multimap = MultimapBuilder.treeKeys().arrayListValues().build();
-        //Get each price to reflect each album
-        for (Album a : albums) {
-            if(a.getPrice() != null) {
-                multimap.put(a.getPrice(), a);
-            }
-        }
-
-        //build a empty arrayList to prepare to store result
-        List<Album> result = Lists.newArrayList();
-        //Get all price from multimap.count and sort them
-        List<Double> sortedKeys = Lists.newArrayList(multimap.keySet());
-        //*****Sort it From big to small
-        sortedKeys.sort(Ordering.natural().reverse());
-        // From big price number to small, to add value in result
-        for (Double price : sortedKeys) {
-            //Use current price to get albums
-            List<Album> list = multimap.get(price);
-            //if current price's number of album already bigger than we need, put them to result and break loop
-            if (list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-                break;
-            }
-            //if last price's number of albums + current price albums >= we need, put them into result until it is full
-            if (result.size() + list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-            } else {
-                result.addAll(list);
-            }
-        }
-
-        return result;
+        //keep the k albums with the highest price, albums without a price are ignored
+        return topAlbums(k, "price", Album::getPrice);
     }
 
 
@@ -490,54 +443,8 @@ public class ECMMiner {
         }
         notNull(k);
 
-        //get all albums from database
-        Collection<Album> albums = dao.loadAll(Album.class);
-
-        //Map(ratings,album)
-        ListMultimap<Double, Album> multimap = MultimapBuilder.treeKeys().arrayListValues().build();
-
-        //Get each ratings to reflect each album
-        for (Album a : albums) {
-            if(a.getRating() != null)
-                multimap.put(a.getRating(), a);
-        }
-
-        //build a empty arrayList to prepare to store result
-        List<Album> result = Lists.newArrayList();
-
-        //Get all ratings from multimap.count and sort them
-        List<Double> sortedKeys = Lists.newArrayList(multimap.keySet());
-
-        // sorting from highest rating to the lowest rating
-        sortedKeys.sort(Ordering.natural().reverse());
-
-        // From highest rating to lowest rating, to add value in result
-
-        for (Double ratings : sortedKeys) {
-
-            //Use current ratings to get albums
-            List<Album> list = multimap.get(ratings);
-
-            //if current ratings's number of album already bigger than we need, put them to result and break loop
-            if (list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-                break;
-            }
-            //if last ratings's number of albums + current ratings albums >= we need, put them into result until it is full
-            if (result.size() + list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-            } else {
-                result.addAll(list);
-            }
-        }
-
-        return result;
+        //keep the k albums with the highest ratings, albums without a rating are ignored
+        return topAlbums(k, "rating", Album::getRating);
     }
 
     /**
@@ -549,62 +456,140 @@ public class ECMMiner {
         if (k <=0) {
             return Lists.newArrayList();
         }
-        Collection<Album> albums = dao.loadAll(Album.class);
-        ListMultimap<Integer,Album> albumSales = MultimapBuilder.treeKeys().arrayListValues().build();
-        for(Album a: albums){
-            albumSales.put(a.getSales(),a);
+        return topAlbums(k, "sales", Album::getSales);
+    }
+
+    public List<Album> highestRatingAlbum(int k){
+        if (k <=0) {
+            return Lists.newArrayList();
         }
+        return topAlbums(k, "rating", Album::getRating);
+    }
 
-        List<Album> result = Lists.newArrayList();
-        List<Integer> sortedKeys = Lists.newArrayList(albumSales.keySet());
-        sortedKeys.sort(Ordering.natural().reverse());
+    /**
+     * Computes several reports together, feeding every album report from a single scan of the albums
+     * instead of loading the albums once per report. Musicians are only loaded for
+     * {@link Report#MOST_PROLIFIC_MUSICIANS}, which counts albums over all years.
+     *
+     * @Param requested the reports to compute with the number of elements each one should return.
+     */
+    public CatalogReport reports(Map<Report, Integer> requested) {
+        notNull(requested);
+        for (Map.Entry<Report, Integer> entry : requested.entrySet()) {
+            notNull(entry.getValue());
+            if (entry.getValue() <= 0) {
+                throw new IllegalArgumentException("Number of " + entry.getKey() + " to return should be more than 0");
+            }
+        }
 
-        for(Integer count : sortedKeys){
-            List<Album> list = albumSales.get(count);
-            if (list.size() >= k) {
-                break;
+        if (projection) {
+            // every report reads its own property, no album is loaded except the ones returned
+            return new CatalogReport(
+                    requested.containsKey(Report.BUSIEST_YEARS)
+                            ? busiestYears(requested.get(Report.BUSIEST_YEARS)) : Lists.newArrayList(),
+                    requested.containsKey(Report.MOST_EXPENSIVE_ALBUMS)
+                            ? topProjectedAlbums(requested.get(Report.MOST_EXPENSIVE_ALBUMS), "price")
+                            : Lists.newArrayList(),
+                    requested.containsKey(Report.HIGHEST_RATED_ALBUMS)
+                            ? topProjectedAlbums(requested.get(Report.HIGHEST_RATED_ALBUMS), "rating")
+                            : Lists.newArrayList(),
+                    requested.containsKey(Report.BEST_SELLER_ALBUMS)
+                            ? topProjectedAlbums(requested.get(Report.BEST_SELLER_ALBUMS), "sales")
+                            : Lists.newArrayList(),
+                    requested.containsKey(Report.MOST_PROLIFIC_MUSICIANS)
+                            ? mostProlificMusicians(requested.get(Report.MOST_PROLIFIC_MUSICIANS), -1, -1)
+                            : Lists.newArrayList());
+        }
+
+        // with pushdown the store counts the years, no album needs to be loaded for them
+        boolean countYears = requested.containsKey(Report.BUSIEST_YEARS) && !pushdown;
+        boolean scanAlbums = countYears
+                || requested.containsKey(Report.MOST_EXPENSIVE_ALBUMS)
+                || requested.containsKey(Report.HIGHEST_RATED_ALBUMS)
+                || requested.containsKey(Report.BEST_SELLER_ALBUMS);
+
+        CatalogScan scan = new CatalogScan(requested, countYears, 0);
+        if (scanAlbums && paged()) {
+            for (Album a : pagedAlbums()) {
+                scan.add(a);
             }
-            if(result.size() + list.size() >= k){
-                int addition = k - result.size();
-                for(int i=0; i < addition; i++){
-                    result.add(list.get(i));
+        } else if (scanAlbums) {
+            List<Album> albums = asList(dao.loadAll(Album.class));
+            scan = aggregate(albums.size(), (from, to) -> {
+                CatalogScan partial = new CatalogScan(requested, countYears, from);
+                for (Album a : albums.subList(from, to)) {
+                    partial.add(a);
                 }
-            } else{
-                result.addAll(list);
-            }
+                return partial;
+            }, CatalogScan::merge);
         }
-        return result;
-    }
 
-    public List<Album> highestRatingAlbum(int k){
-        if (k <=0) {
-            return Lists.newArrayList();
+        List<Integer> years = Lists.newArrayList();
+        if (requested.containsKey(Report.BUSIEST_YEARS)) {
+            int k = requested.get(Report.BUSIEST_YEARS);
+            years = countYears ? scan.busiestYears(k) : busiestYears(k);
         }
-        Collection<Album> albums = dao.loadAll(Album.class);
-        ListMultimap<Double,Album> albumRating = MultimapBuilder.treeKeys().arrayListValues().build();
-        for(Album a: albums){
-            albumRating.put(a.getRating(),a);
+        List<Musician> musicians = Lists.newArrayList();
+        if (requested.containsKey(Report.MOST_PROLIFIC_MUSICIANS)) {
+            musicians = mostProlificMusicians(requested.get(Report.MOST_PROLIFIC_MUSICIANS), -1, -1);
         }
+        return new CatalogReport(years, scan.mostExpensiveAlbums(), scan.highestRatedAlbums(),
+                scan.bestSellerAlbums(), musicians);
+    }
 
-        List<Album> result = Lists.newArrayList();
-        List<Double> sortedKeys = Lists.newArrayList(albumRating.keySet());
-        sortedKeys.sort(Ordering.natural().reverse());
+    /**
+     * The k albums with the highest scores, albums without a score are ignored. In parallel every range keeps
+     * its own k best, numbered from the start of the range so that ties keep the order of the albums.
+     */
+    private List<Album> topAlbums(int k, String property, Function<Album, ? extends Number> score) {
+        if (projection) {
+            return topProjectedAlbums(k, property);
+        }
+        if (paged()) {
+            return topAlbums(k, score, pagedAlbums(), 0).toList();
+        }
+        List<Album> albums = asList(dao.loadAll(Album.class));
+        TopK<Album> topK = aggregate(albums.size(),
+                (from, to) -> topAlbums(k, score, albums.subList(from, to), from),
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                });
+        return topK.toList();
+    }
 
-        for(Double count : sortedKeys){
-            List<Album> list = albumRating.get(count);
-            if (list.size() >= k) {
-                break;
-            }
-            if(result.size() + list.size() >= k){
-                int addition = k - result.size();
-                for(int i=0; i < addition; i++){
-                    result.add(list.get(i));
+    private List<Album> topProjectedAlbums(int k, String property) {
+        Projection rows = dao.project(Album.class, property);
+        double[] scores = rows.column(property);
+        TopK<Long> topK = aggregate(rows.size(), (from, to) -> {
+            TopK<Long> partial = new TopK<>(k, null, from);
+            for (int row = from; row < to; row++) {
+                if (!Double.isNaN(scores[row])) {
+                    partial.offer(rows.getId(row), scores[row]);
                 }
-            } else{
-                result.addAll(list);
+            }
+            return partial;
+        }, (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
+        List<Album> albums = Lists.newArrayList();
+        for (Long id : topK.toList()) {
+            albums.add(dao.load(Album.class, id));
+        }
+        return albums;
+    }
+
+    private static TopK<Album> topAlbums(int k, Function<Album, ? extends Number> score, Iterable<Album> albums,
+                                         long firstSequence) {
+        TopK<Album> topK = new TopK<>(k, null, firstSequence);
+        for (Album a : albums) {
+            Number value = score.apply(a);
+            if (value != null) {
+                topK.offer(a, value.doubleValue());
             }
         }
-        return result;
+        return topK;
     }
 
 
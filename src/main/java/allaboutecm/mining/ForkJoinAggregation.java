@@ -0,0 +1,65 @@
+package allaboutecm.mining;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Splits the positions [0, size) of an input into ranges, aggregates every range on its own in a
+ * {@link ForkJoinPool} and merges the partial aggregates.
+ *
+ * A partial aggregate is always merged with the one of the range directly after it, left first, so merges that
+ * depend on the input order (like {@link TopK#addAll(TopK)}) give the same result as one sequential pass.
+ */
+final class ForkJoinAggregation {
+    // below this many elements a range is cheaper to aggregate than to split again
+    static final int MIN_RANGE = 1024;
+
+    /**
+     * Aggregates the positions from (inclusive) to (exclusive) of the input.
+     */
+    interface RangeAggregator<A> {
+        A aggregate(int from, int to);
+    }
+
+    private ForkJoinAggregation() {
+    }
+
+    static <A> A aggregate(ForkJoinPool pool, int size, int minRange, RangeAggregator<A> aggregator,
+                           BinaryOperator<A> merge) {
+        // a few ranges per worker so that busy workers can steal from each other
+        int range = Math.max(minRange, size / (pool.getParallelism() * 4) + 1);
+        return pool.invoke(new RangeTask<>(0, size, range, aggregator, merge));
+    }
+
+    private static final class RangeTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int range;
+        private final RangeAggregator<A> aggregator;
+        private final BinaryOperator<A> merge;
+
+        private RangeTask(int from, int to, int range, RangeAggregator<A> aggregator, BinaryOperator<A> merge) {
+            this.from = from;
+            this.to = to;
+            this.range = range;
+            this.aggregator = aggregator;
+            this.merge = merge;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= range) {
+                return aggregator.aggregate(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask<A> left = new RangeTask<>(from, middle, range, aggregator, merge);
+            RangeTask<A> right = new RangeTask<>(middle, to, range, aggregator, merge);
+            left.fork();
+            A rightResult = right.compute();
+            return merge.apply(left.join(), rightResult);
+        }
+    }
+}
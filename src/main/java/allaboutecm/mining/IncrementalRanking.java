@@ -0,0 +1,95 @@
+package allaboutecm.mining;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Elements kept sorted by score while their scores change, so that reading the top k costs O(k)
+ * and every update O(log n).
+ *
+ * Elements are identified by a key (the store id of an entity). Elements with the same score are ordered by
+ * their tie key when one is given, and then by the order in which they were first put.
+ */
+public class IncrementalRanking<T> {
+    private static final Comparator<Entry<?>> ORDER = Comparator
+            .<Entry<?>>comparingDouble(entry -> -entry.score)
+            .thenComparing(entry -> entry.tie, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final Map<Long, Entry<T>> entries = Maps.newHashMap();
+    private final TreeSet<Entry<T>> order = new TreeSet<>(ORDER);
+    private long sequence;
+
+    /**
+     * Puts the element with its score, replacing the element previously put with the same key.
+     */
+    public void put(Long key, T element, double score) {
+        put(key, element, score, null);
+    }
+
+    public void put(Long key, T element, double score, String tie) {
+        Entry<T> old = entries.get(key);
+        long first = sequence;
+        if (null == old) {
+            sequence++;
+        } else {
+            first = old.sequence;
+            order.remove(old);
+        }
+        Entry<T> entry = new Entry<>(element, score, tie, first);
+        entries.put(key, entry);
+        order.add(entry);
+    }
+
+    public void remove(Long key) {
+        Entry<T> old = entries.remove(key);
+        if (null != old) {
+            order.remove(old);
+        }
+    }
+
+    public boolean contains(Long key) {
+        return entries.containsKey(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        order.clear();
+    }
+
+    /**
+     * Returns the k elements with the highest scores, from the highest to the lowest.
+     */
+    public List<T> top(int k) {
+        List<T> result = Lists.newArrayListWithCapacity(Math.min(k, entries.size()));
+        Iterator<Entry<T>> iterator = order.iterator();
+        while (result.size() < k && iterator.hasNext()) {
+            result.add(iterator.next().element);
+        }
+        return result;
+    }
+
+    private static final class Entry<T> {
+        private final T element;
+        private final double score;
+        private final String tie;
+        private final long sequence;
+
+        private Entry(T element, double score, String tie, long sequence) {
+            this.element = element;
+            this.score = score;
+            this.tie = tie;
+            this.sequence = sequence;
+        }
+    }
+}
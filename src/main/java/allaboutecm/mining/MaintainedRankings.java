@@ -0,0 +1,256 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.FetchPlan;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.MusicalInstrument;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianInstrument;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rankings of {@link ECMMiner} kept up to date from the changes a DAO makes, instead of rescanning the
+ * catalog on every query. Register it with {@link allaboutecm.dataaccess.neo4j.Neo4jDAO#addListener(DAOListener)}
+ * after {@link #reload(DAO)}.
+ *
+ * Every change costs O(log n) per ranking it touches and reading the top k costs O(k). Entities are tracked
+ * by their store id, so only saved entities are counted. Saving a musician also counts the albums saved
+ * with it, like {@link allaboutecm.dataaccess.neo4j.Neo4jDAO#createOrUpdate(Entity)} stores them.
+ *
+ * Unlike {@link ECMMiner#mostProlificMusicians(int, int, int)}, albums are counted over all years.
+ */
+public class MaintainedRankings implements DAOListener {
+    private final YearHistogram years = new YearHistogram();
+    private final Map<Long, Integer> albumYears = Maps.newHashMap();
+    private final IncrementalRanking<Album> prices = new IncrementalRanking<>();
+    private final IncrementalRanking<Album> ratings = new IncrementalRanking<>();
+    private final IncrementalRanking<Album> sales = new IncrementalRanking<>();
+
+    // musician id -> album ids, and album id -> musician ids to update musicians when an album goes away
+    private final Map<Long, Set<Long>> musicianAlbums = Maps.newHashMap();
+    private final Map<Long, Set<Long>> albumMusicians = Maps.newHashMap();
+    private final Map<Long, Musician> musicians = Maps.newHashMap();
+    private final IncrementalRanking<Musician> prolific = new IncrementalRanking<>();
+
+    // musician instrument id -> what it contributed, musician id -> instruments with the number of rows playing them
+    private final Map<Long, MusicianInstrument> musicianInstruments = Maps.newHashMap();
+    private final Map<Long, Set<MusicalInstrument>> contributedInstruments = Maps.newHashMap();
+    private final Map<Long, Multiset<MusicalInstrument>> instruments = Maps.newHashMap();
+    private final IncrementalRanking<Musician> talented = new IncrementalRanking<>();
+
+    /**
+     * Forgets everything and counts the whole catalog again from the DAO. The musicians are fetched with their
+     * albums and the MusicianInstruments with their musician and instruments, which loading them alone leaves out.
+     */
+    public synchronized void reload(DAO dao) {
+        for (Long id : Sets.newHashSet(albumYears.keySet())) {
+            removeAlbum(id);
+        }
+        musicianAlbums.clear();
+        albumMusicians.clear();
+        musicians.clear();
+        prolific.clear();
+        musicianInstruments.clear();
+        contributedInstruments.clear();
+        instruments.clear();
+        talented.clear();
+
+        for (Album album : dao.loadAll(Album.class)) {
+            saved(album);
+        }
+        for (Musician musician : dao.fetchAll(FetchPlan.MUSICIAN_ALBUMS)) {
+            saved(musician);
+        }
+        for (MusicianInstrument musicianInstrument : dao.fetchAll(FetchPlan.MUSICIAN_INSTRUMENTS)) {
+            saved(musicianInstrument);
+        }
+    }
+
+    @Override
+    public synchronized void saved(Entity entity) {
+        if (null == entity.getId()) {
+            return;
+        }
+        if (entity instanceof Album) {
+            saveAlbum((Album) entity);
+        } else if (entity instanceof Musician) {
+            saveMusician((Musician) entity);
+        } else if (entity instanceof MusicianInstrument) {
+            saveMusicianInstrument((MusicianInstrument) entity);
+        }
+    }
+
+    @Override
+    public synchronized void deleted(Entity entity) {
+        Long id = entity.getId();
+        if (null == id) {
+            return;
+        }
+        if (entity instanceof Album) {
+            removeAlbum(id);
+            Set<Long> featuring = albumMusicians.remove(id);
+            if (null != featuring) {
+                for (Long musicianId : featuring) {
+                    musicianAlbums.get(musicianId).remove(id);
+                    rankProlific(musicianId);
+                }
+            }
+        } else if (entity instanceof Musician) {
+            Set<Long> albums = musicianAlbums.remove(id);
+            if (null != albums) {
+                for (Long albumId : albums) {
+                    albumMusicians.get(albumId).remove(id);
+                }
+            }
+            musicians.remove(id);
+            prolific.remove(id);
+            instruments.remove(id);
+            talented.remove(id);
+        } else if (entity instanceof MusicianInstrument) {
+            removeMusicianInstrument(id);
+        }
+    }
+
+    public synchronized List<Musician> mostProlificMusicians(int k) {
+        return prolific.top(k);
+    }
+
+    public synchronized List<Musician> mostTalentedMusicians(int k) {
+        return talented.top(k);
+    }
+
+    public synchronized List<Integer> busiestYears(int k) {
+        return years.busiestYears(k);
+    }
+
+    public synchronized List<Album> mostExpensiveAlbums(int k) {
+        return prices.top(k);
+    }
+
+    public synchronized List<Album> highestRatedAlbums(int k) {
+        return ratings.top(k);
+    }
+
+    public synchronized List<Album> bestSellerAlbums(int k) {
+        return sales.top(k);
+    }
+
+    private void saveAlbum(Album album) {
+        Long id = album.getId();
+        Integer oldYear = albumYears.put(id, album.getReleaseYear());
+        if (null != oldYear) {
+            years.addIfCovered(oldYear, -1);
+        }
+        years.addIfCovered(album.getReleaseYear(), 1);
+
+        if (null != album.getPrice()) {
+            prices.put(id, album, album.getPrice());
+        } else {
+            prices.remove(id);
+        }
+        if (null != album.getRating()) {
+            ratings.put(id, album, album.getRating());
+        } else {
+            ratings.remove(id);
+        }
+        sales.put(id, album, album.getSales());
+    }
+
+    private void removeAlbum(Long id) {
+        Integer year = albumYears.remove(id);
+        if (null != year) {
+            years.addIfCovered(year, -1);
+        }
+        prices.remove(id);
+        ratings.remove(id);
+        sales.remove(id);
+    }
+
+    private void saveMusician(Musician musician) {
+        Long id = musician.getId();
+        musicians.put(id, musician);
+        if (null == musician.getAlbums()) {
+            return;
+        }
+
+        Set<Long> albums = Sets.newHashSet();
+        for (Album album : musician.getAlbums()) {
+            if (null != album.getId()) {
+                saveAlbum(album);
+                albums.add(album.getId());
+            }
+        }
+        Set<Long> old = musicianAlbums.put(id, albums);
+        if (null != old) {
+            for (Long albumId : old) {
+                albumMusicians.get(albumId).remove(id);
+            }
+        }
+        for (Long albumId : albums) {
+            albumMusicians.computeIfAbsent(albumId, albumKey -> Sets.newHashSet()).add(id);
+        }
+        rankProlific(id);
+    }
+
+    private void rankProlific(Long musicianId) {
+        Set<Long> albums = musicianAlbums.get(musicianId);
+        if (null == albums || albums.isEmpty()) {
+            prolific.remove(musicianId);
+        } else {
+            Musician musician = musicians.get(musicianId);
+            prolific.put(musicianId, musician, albums.size(), musician.getName());
+        }
+    }
+
+    private void saveMusicianInstrument(MusicianInstrument musicianInstrument) {
+        Musician musician = musicianInstrument.getMusician();
+        if (null == musician || null == musician.getId() || null == musicianInstrument.getMusicalInstruments()) {
+            return;
+        }
+        removeMusicianInstrument(musicianInstrument.getId());
+
+        Long musicianId = musician.getId();
+        musicians.putIfAbsent(musicianId, musician);
+        Set<MusicalInstrument> played = Sets.newHashSet(musicianInstrument.getMusicalInstruments());
+        musicianInstruments.put(musicianInstrument.getId(), musicianInstrument);
+        contributedInstruments.put(musicianInstrument.getId(), played);
+        instruments.computeIfAbsent(musicianId, key -> HashMultiset.create()).addAll(played);
+        rankTalented(musicianId);
+    }
+
+    private void removeMusicianInstrument(Long id) {
+        MusicianInstrument old = musicianInstruments.remove(id);
+        Set<MusicalInstrument> played = contributedInstruments.remove(id);
+        if (null == old) {
+            return;
+        }
+        Long musicianId = old.getMusician().getId();
+        Multiset<MusicalInstrument> counted = instruments.get(musicianId);
+        if (null != counted) {
+            for (MusicalInstrument instrument : played) {
+                counted.remove(instrument);
+            }
+        }
+        rankTalented(musicianId);
+    }
+
+    private void rankTalented(Long musicianId) {
+        Multiset<MusicalInstrument> counted = instruments.get(musicianId);
+        if (null == counted || counted.isEmpty()) {
+            instruments.remove(musicianId);
+            talented.remove(musicianId);
+        } else {
+            Musician musician = musicians.get(musicianId);
+            talented.put(musicianId, musician, counted.elementSet().size(), musician.getName());
+        }
+    }
+}
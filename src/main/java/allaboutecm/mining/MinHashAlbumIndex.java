@@ -0,0 +1,173 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Approximate album similarity over shared musicians using MinHash signatures and LSH banding.
+ *
+ * Every album gets bands * rows MinHash values over its musician ids. Each band of rows values is hashed
+ * into one int key, and albums whose key is equal in at least one band become candidates for each other.
+ * Albums with a Jaccard similarity s are found with probability 1 - (1 - s^rows)^bands.
+ *
+ * Per band the index only keeps a sorted long array of (key, album id) pairs, so a query is a binary search
+ * per band. Candidates are then scored by their exact Jaccard similarity, which also drops the rare
+ * key collisions that share no musician at all.
+ */
+public class MinHashAlbumIndex {
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS = 2;
+
+    private static final long PRIME = (1L << 31) - 1;
+    private static final long SEED = 5171L;
+
+    private final MusicianAlbumIndex index;
+    private final int bands;
+    private final int rows;
+
+    // coefficients of the universal hash functions (a * x + b) mod PRIME
+    private final long[] a;
+    private final long[] b;
+
+    // per band, (key << 32 | album id) sorted, so albums with the same key are next to each other
+    private final long[][] buckets;
+
+    private MinHashAlbumIndex(MusicianAlbumIndex index, int bands, int rows) {
+        this.index = index;
+        this.bands = bands;
+        this.rows = rows;
+
+        Random random = new Random(SEED);
+        a = new long[bands * rows];
+        b = new long[bands * rows];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = 1 + (long) random.nextInt(Integer.MAX_VALUE - 1);
+            b[i] = (long) random.nextInt(Integer.MAX_VALUE);
+        }
+
+        buckets = new long[bands][];
+        long[][] packed = new long[bands][index.albumCount()];
+        int size = 0;
+        int[] signature = new int[bands * rows];
+        for (int albumId = 0; albumId < index.albumCount(); albumId++) {
+            int[] lineup = index.lineupOf(albumId);
+            // albums without musicians cannot be similar to anything
+            if (lineup.length == 0) {
+                continue;
+            }
+            signature(lineup, signature);
+            for (int band = 0; band < bands; band++) {
+                packed[band][size] = pack(bandKey(signature, band), albumId);
+            }
+            size++;
+        }
+        for (int band = 0; band < bands; band++) {
+            buckets[band] = Arrays.copyOf(packed[band], size);
+            Arrays.sort(buckets[band]);
+        }
+    }
+
+    public static MinHashAlbumIndex build(Collection<Album> albums) {
+        return build(MusicianAlbumIndex.build(albums), DEFAULT_BANDS, DEFAULT_ROWS);
+    }
+
+    public static MinHashAlbumIndex build(MusicianAlbumIndex index, int bands, int rows) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Number of bands and rows should be more than 0");
+        }
+        return new MinHashAlbumIndex(index, bands, rows);
+    }
+
+    /**
+     * Returns up to k albums similar to the given one, the album itself excluded, ordered by Jaccard similarity.
+     * Albums with the same similarity keep their index order.
+     */
+    public List<Album> mostSimilar(Album album, int k) {
+        int[] musicianIds = AlbumSimilarityIndex.knownMusicianIds(index, album);
+        TopK<Album> topK = new TopK<>(k);
+        if (musicianIds.length == 0) {
+            return topK.toList();
+        }
+
+        int[] signature = new int[bands * rows];
+        signature(musicianIds, signature);
+
+        int[] candidates = new int[16];
+        int size = 0;
+        for (int band = 0; band < bands; band++) {
+            long[] bucket = buckets[band];
+            long low = pack(bandKey(signature, band), 0);
+            int position = Arrays.binarySearch(bucket, low);
+            if (position < 0) {
+                position = -position - 1;
+            }
+            while (position < bucket.length && (bucket[position] >> 32) == (low >> 32)) {
+                if (size == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, size * 2);
+                }
+                candidates[size++] = (int) bucket[position++];
+            }
+        }
+        Arrays.sort(candidates, 0, size);
+
+        int lineupSize = AlbumSimilarityIndex.distinctLineupSize(album);
+        for (int i = 0; i < size; i++) {
+            int albumId = candidates[i];
+            if (i > 0 && albumId == candidates[i - 1]) {
+                continue;
+            }
+            Album candidate = index.getAlbum(albumId);
+            if (candidate.equals(album)) {
+                continue;
+            }
+            int overlap = 0;
+            int[] lineup = index.lineupOf(albumId);
+            for (int id : lineup) {
+                if (Arrays.binarySearch(musicianIds, id) >= 0) {
+                    overlap++;
+                }
+            }
+            if (overlap > 0) {
+                topK.offer(candidate, (double) overlap / (lineupSize + lineup.length - overlap));
+            }
+        }
+        return topK.toList();
+    }
+
+    public MusicianAlbumIndex getIndex() {
+        return index;
+    }
+
+    private void signature(int[] musicianIds, int[] signature) {
+        for (int i = 0; i < signature.length; i++) {
+            long min = Long.MAX_VALUE;
+            for (int id : musicianIds) {
+                long hash = (a[i] * id + b[i]) % PRIME;
+                if (hash < min) {
+                    min = hash;
+                }
+            }
+            signature[i] = (int) min;
+        }
+    }
+
+    private int bandKey(int[] signature, int band) {
+        int key = band;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            key = 31 * key + signature[row];
+        }
+        // spread the bits so keys of similar signatures do not cluster
+        key ^= key >>> 16;
+        key *= 0x85ebca6b;
+        key ^= key >>> 13;
+        return key;
+    }
+
+    private static long pack(int key, int albumId) {
+        return ((long) key << 32) | (albumId & 0xffffffffL);
+    }
+}
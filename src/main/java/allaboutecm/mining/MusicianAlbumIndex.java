@@ -0,0 +1,173 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from musicians to the albums that feature them, built in one pass over the albums.
+ *
+ * Musicians get dense int ids in the order they are first seen and are identified by name, like
+ * {@link Musician#equals(Object)} does. Albums get dense int ids in input order. Both directions are
+ * kept as int arrays: the lineup of every album and the posting list of every musician.
+ */
+public class MusicianAlbumIndex {
+    private final List<Musician> musicians;
+    private final Map<String, Integer> musicianIds;
+    private final List<Album> albums;
+
+    // album id -> distinct musician ids featured in it
+    private final int[][] lineups;
+    // musician id -> album ids featuring the musician, in album order
+    private final int[][] postings;
+
+    private MusicianAlbumIndex(List<Musician> musicians, Map<String, Integer> musicianIds, List<Album> albums,
+                               int[][] lineups, int[][] postings) {
+        this.musicians = musicians;
+        this.musicianIds = musicianIds;
+        this.albums = albums;
+        this.lineups = lineups;
+        this.postings = postings;
+    }
+
+    public static MusicianAlbumIndex build(Collection<Album> albumCollection) {
+        List<Musician> musicians = Lists.newArrayList();
+        Map<String, Integer> musicianIds = Maps.newHashMap();
+        List<Album> albums = Lists.newArrayListWithCapacity(albumCollection.size());
+        int[][] lineups = new int[albumCollection.size()][];
+
+        int[] postingSizes = new int[16];
+        int[] lastAlbum = new int[16];
+        int[] lineup = new int[16];
+        for (Album album : albumCollection) {
+            int albumId = albums.size();
+            albums.add(album);
+
+            List<Musician> featured = album.getFeaturedMusicians();
+            int size = 0;
+            if (null != featured) {
+                for (Musician musician : featured) {
+                    Integer id = musicianIds.get(musician.getName());
+                    if (null == id) {
+                        id = musicians.size();
+                        musicianIds.put(musician.getName(), id);
+                        musicians.add(musician);
+                        if (id == postingSizes.length) {
+                            postingSizes = Arrays.copyOf(postingSizes, id * 2);
+                            lastAlbum = Arrays.copyOf(lastAlbum, id * 2);
+                        }
+                        lastAlbum[id] = -1;
+                    } else {
+                        // the last instance seen represents the musician, like a name keyed map would
+                        musicians.set(id, musician);
+                    }
+
+                    // a musician listed twice in one album is only counted once
+                    if (lastAlbum[id] != albumId) {
+                        lastAlbum[id] = albumId;
+                        postingSizes[id]++;
+                        if (size == lineup.length) {
+                            lineup = Arrays.copyOf(lineup, size * 2);
+                        }
+                        lineup[size++] = id;
+                    }
+                }
+            }
+            lineups[albumId] = Arrays.copyOf(lineup, size);
+        }
+
+        int[][] postings = new int[musicians.size()][];
+        for (int id = 0; id < postings.length; id++) {
+            postings[id] = new int[postingSizes[id]];
+        }
+        int[] filled = new int[musicians.size()];
+        for (int albumId = 0; albumId < lineups.length; albumId++) {
+            for (int id : lineups[albumId]) {
+                postings[id][filled[id]++] = albumId;
+            }
+        }
+        return new MusicianAlbumIndex(musicians, musicianIds, albums, lineups, postings);
+    }
+
+    public int musicianCount() {
+        return musicians.size();
+    }
+
+    public int albumCount() {
+        return albums.size();
+    }
+
+    public Musician getMusician(int musicianId) {
+        return musicians.get(musicianId);
+    }
+
+    public Album getAlbum(int albumId) {
+        return albums.get(albumId);
+    }
+
+    /**
+     * Returns the id of the musician with the same name, or -1 when the musician is not featured in any album.
+     */
+    public int idOf(Musician musician) {
+        Integer id = musicianIds.get(musician.getName());
+        return null == id ? -1 : id;
+    }
+
+    /**
+     * The album ids featuring the musician. The returned array must not be modified.
+     */
+    public int[] albumsOf(int musicianId) {
+        return postings[musicianId];
+    }
+
+    /**
+     * The distinct musician ids featured in the album. The returned array must not be modified.
+     */
+    public int[] lineupOf(int albumId) {
+        return lineups[albumId];
+    }
+
+    /**
+     * Number of distinct other musicians every musician has been featured with, indexed by musician id.
+     */
+    public int[] collaboratorCounts() {
+        return collaboratorCounts(0, musicians.size());
+    }
+
+    /**
+     * Number of distinct other musicians the musicians with ids from (inclusive) to (exclusive) have been featured
+     * with, indexed by musician id - from. Disjoint ranges can be counted concurrently.
+     */
+    public int[] collaboratorCounts(int from, int to) {
+        int[] counts = new int[to - from];
+        // the lineups of a musician's albums, in one buffer per range that only grows to the largest of them
+        int[] others = new int[16];
+        for (int musician = from; musician < to; musician++) {
+            int size = 0;
+            for (int albumId : postings[musician]) {
+                int[] lineup = lineups[albumId];
+                if (size + lineup.length > others.length) {
+                    others = Arrays.copyOf(others, Math.max(others.length * 2, size + lineup.length));
+                }
+                System.arraycopy(lineup, 0, others, size, lineup.length);
+                size += lineup.length;
+            }
+            // sorted, every distinct other musician is counted at its first position
+            Arrays.sort(others, 0, size);
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if ((0 == i || others[i] != others[i - 1]) && others[i] != musician) {
+                    count++;
+                }
+            }
+            counts[musician - from] = count;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,31 @@
+package allaboutecm.mining;
+
+/**
+ * Reports that {@link ECMMiner#reports(java.util.Map)} can compute together in one scan of the catalog.
+ */
+public enum Report {
+    /**
+     * Same as {@link ECMMiner#busiestYears(int)}.
+     */
+    BUSIEST_YEARS,
+
+    /**
+     * Same as {@link ECMMiner#mostExpensiveAlbums(int)}.
+     */
+    MOST_EXPENSIVE_ALBUMS,
+
+    /**
+     * Same as {@link ECMMiner#highestRatedAlbums(int)}.
+     */
+    HIGHEST_RATED_ALBUMS,
+
+    /**
+     * Same as {@link ECMMiner#bestSellerAlbum(int)}.
+     */
+    BEST_SELLER_ALBUMS,
+
+    /**
+     * Same as {@link ECMMiner#mostProlificMusicians(int, int, int)} over all years.
+     */
+    MOST_PROLIFIC_MUSICIANS
+}
@@ -0,0 +1,94 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The album similarity indexes of {@link ECMMiner#mostSimilarAlbums(int, Album, AlbumSimilarity)}, built from the
+ * catalog on the first query that needs them and reused by the next ones, so that a query only probes them.
+ *
+ * Register it as a {@link DAOListener} of the DAO (or call {@link #invalidate()} after changing the catalog some
+ * other way): saving or deleting an album or a musician drops the indexes, and the next query builds them again.
+ */
+public class SimilarityIndexes implements DAOListener {
+    private final Supplier<? extends Collection<Album>> lineups;
+    private final Supplier<? extends Collection<Album>> texts;
+
+    // null until a query needs them, and again after a change
+    private AlbumSimilarityIndex exact;
+    private MinHashAlbumIndex minHash;
+    private AlbumTextIndex text;
+
+    /**
+     * @param lineups loads the albums with their featured musicians.
+     * @param texts loads the albums with their names and tracks.
+     */
+    public SimilarityIndexes(Supplier<? extends Collection<Album>> lineups, Supplier<? extends Collection<Album>> texts) {
+        this.lineups = lineups;
+        this.texts = texts;
+    }
+
+    public synchronized List<Album> mostSimilar(Album album, int k, AlbumSimilarity similarity) {
+        if (similarity == AlbumSimilarity.NAMES) {
+            return text().mostSimilar(album, k);
+        }
+        if (similarity == AlbumSimilarity.MINHASH) {
+            return minHash().mostSimilar(album, k);
+        }
+        return exact().mostSimilar(album, k, similarity);
+    }
+
+    private AlbumSimilarityIndex exact() {
+        if (null == exact) {
+            exact = new AlbumSimilarityIndex(MusicianAlbumIndex.build(lineups.get()));
+        }
+        return exact;
+    }
+
+    private MinHashAlbumIndex minHash() {
+        if (null == minHash) {
+            // shares the musician index of the exact similarity
+            minHash = MinHashAlbumIndex.build(exact().getIndex(), MinHashAlbumIndex.DEFAULT_BANDS,
+                    MinHashAlbumIndex.DEFAULT_ROWS);
+        }
+        return minHash;
+    }
+
+    private AlbumTextIndex text() {
+        if (null == text) {
+            text = AlbumTextIndex.build(texts.get());
+        }
+        return text;
+    }
+
+    /**
+     * Drops the indexes, the next query builds them from the catalog again.
+     */
+    public synchronized void invalidate() {
+        exact = null;
+        minHash = null;
+        text = null;
+    }
+
+    @Override
+    public void saved(Entity entity) {
+        changed(entity);
+    }
+
+    @Override
+    public void deleted(Entity entity) {
+        changed(entity);
+    }
+
+    private void changed(Entity entity) {
+        if (entity instanceof Album || entity instanceof Musician) {
+            invalidate();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package allaboutecm.mining;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the k highest scoring elements that are offered to it.
+ *
+ * Internally this is a min-heap holding at most k elements whose root is the weakest element kept so far,
+ * so selecting from n candidates costs O(n log k) time and O(k) memory. Scores live in a primitive array
+ * and are never boxed.
+ *
+ * Elements with the same score are ordered by the optional tie breaker and then by the order in which
+ * they were offered, which matches the order the sorted multimap loops in {@link ECMMiner} used to give.
+ */
+public class TopK<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private final Comparator<? super T> tieBreaker;
+
+    private double[] scores;
+    private long[] sequence;
+    private Object[] elements;
+
+    private int size;
+    private long offered;
+
+    public TopK(int k) {
+        this(k, null);
+    }
+
+    public TopK(int k, Comparator<? super T> tieBreaker) {
+        this(k, tieBreaker, 0);
+    }
+
+    /**
+     * Numbers the offered elements from firstSequence, so that a partition of the input starting at that
+     * position can be ranked on its own and merged with {@link #addAll(TopK)} in the same order.
+     */
+    TopK(int k, Comparator<? super T> tieBreaker, long firstSequence) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k should be more than 0");
+        }
+        this.k = k;
+        this.tieBreaker = tieBreaker;
+        this.offered = firstSequence;
+
+        // k is often used as "everything", so the heap grows up to k instead of allocating it upfront
+        int capacity = Math.min(k, INITIAL_CAPACITY);
+        this.scores = new double[capacity];
+        this.sequence = new long[capacity];
+        this.elements = new Object[capacity];
+    }
+
+    /**
+     * Offers an element with its score.
+     *
+     * @return true if the element is currently kept among the top k.
+     */
+    public boolean offer(T element, double score) {
+        return offer(element, score, offered++);
+    }
+
+    /**
+     * Offers every element kept by the other heap with its score and offer position, as if they had been
+     * offered to this one. Both heaps should rank with the same tie breaker.
+     */
+    public void addAll(TopK<? extends T> other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.element(i), other.scores[i], other.sequence[i]);
+        }
+        offered = Math.max(offered, other.offered);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Returns the kept elements from the highest to the lowest score. The heap itself is left untouched.
+     */
+    public List<T> toList() {
+        List<T> result = Lists.newArrayListWithCapacity(size);
+        for (int slot : rankedSlots()) {
+            result.add(element(slot));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the scores of the kept elements, in the same order as {@link #toList()}.
+     */
+    public double[] toScores() {
+        int[] slots = rankedSlots();
+        double[] result = new double[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            result[i] = scores[slots[i]];
+        }
+        return result;
+    }
+
+    private int[] rankedSlots() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> better(a, b) ? -1 : (better(b, a) ? 1 : 0));
+
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private boolean offer(T element, double score, long seq) {
+        if (size < k) {
+            if (size == scores.length) {
+                grow();
+            }
+            set(size, element, score, seq);
+            siftUp(size++);
+            return true;
+        }
+        if (!better(element, score, seq, 0)) {
+            return false;
+        }
+        set(0, element, score, seq);
+        siftDown(0);
+        return true;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min((long) k, scores.length * 2L);
+        scores = Arrays.copyOf(scores, capacity);
+        sequence = Arrays.copyOf(sequence, capacity);
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(int i) {
+        return (T) elements[i];
+    }
+
+    private void set(int i, Object element, double score, long seq) {
+        elements[i] = element;
+        scores[i] = score;
+        sequence[i] = seq;
+    }
+
+    private void swap(int i, int j) {
+        Object element = elements[i];
+        double score = scores[i];
+        long seq = sequence[i];
+        set(i, elements[j], scores[j], sequence[j]);
+        set(j, element, score, seq);
+    }
+
+    // the root holds the weakest element, so an element moves up while its parent ranks before it
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(parent, i)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int weakest = 2 * i + 1;
+            if (weakest >= size) {
+                break;
+            }
+            int right = weakest + 1;
+            if (right < size && better(weakest, right)) {
+                weakest = right;
+            }
+            if (!better(i, weakest)) {
+                break;
+            }
+            swap(i, weakest);
+            i = weakest;
+        }
+    }
+
+    private boolean better(int a, int b) {
+        return better(element(a), scores[a], sequence[a], b);
+    }
+
+    // whether the candidate ranks strictly before the element kept at slot b
+    private boolean better(T element, double score, long seq, int b) {
+        int c = Double.compare(score, scores[b]);
+        if (c != 0) {
+            return c > 0;
+        }
+        if (null != tieBreaker) {
+            c = tieBreaker.compare(element, element(b));
+            if (c != 0) {
+                return c < 0;
+            }
+        }
+        return seq < sequence[b];
+    }
+}
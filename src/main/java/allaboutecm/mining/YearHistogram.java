@@ -0,0 +1,96 @@
+package allaboutecm.mining;
+
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Number of albums released per year, kept in a primitive int array indexed by year.
+ *
+ * Release years are a small dense range, {@link allaboutecm.model.Album#setReleaseYear(int)} only accepts
+ * years after 1970 and not in the future, so the histogram takes the same few hundred bytes whatever the
+ * size of the catalog.
+ */
+public class YearHistogram {
+    public static final int FIRST_YEAR = 1971;
+
+    private final int lastYear;
+    private final int[] counts;
+
+    public YearHistogram() {
+        this(Calendar.getInstance().get(Calendar.YEAR));
+    }
+
+    public YearHistogram(int lastYear) {
+        if (lastYear < FIRST_YEAR) {
+            throw new IllegalArgumentException("Last year should be greater than 1970");
+        }
+        this.lastYear = lastYear;
+        this.counts = new int[lastYear - FIRST_YEAR + 1];
+    }
+
+    public void add(int year) {
+        add(year, 1);
+    }
+
+    public void add(int year, int count) {
+        counts[slot(year)] += count;
+    }
+
+    /**
+     * Whether the year is one of the release years the histogram counts.
+     */
+    public boolean covers(int year) {
+        return year >= FIRST_YEAR && year <= lastYear;
+    }
+
+    /**
+     * Adds the count to the year if the histogram covers it, and skips it otherwise. For years read from the
+     * store, where an album without a release year has year 0.
+     *
+     * @return whether the count was added.
+     */
+    public boolean addIfCovered(int year, int count) {
+        if (!covers(year)) {
+            return false;
+        }
+        counts[year - FIRST_YEAR] += count;
+        return true;
+    }
+
+    /**
+     * Adds the counts of another histogram covering the same years.
+     */
+    public void addAll(YearHistogram other) {
+        if (other.lastYear != lastYear) {
+            throw new IllegalArgumentException("Histograms should cover the same years");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    public int count(int year) {
+        return counts[slot(year)];
+    }
+
+    /**
+     * Returns the k years with the most albums. Years with the same number of albums are returned from
+     * the earliest to the latest, and years without any album are never returned.
+     */
+    public List<Integer> busiestYears(int k) {
+        TopK<Integer> topK = new TopK<>(k);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                topK.offer(FIRST_YEAR + i, counts[i]);
+            }
+        }
+        return topK.toList();
+    }
+
+    private int slot(int year) {
+        if (!covers(year)) {
+            throw new IllegalArgumentException("Year should be greater than 1970 and not after " + lastYear);
+        }
+        return year - FIRST_YEAR;
+    }
+}
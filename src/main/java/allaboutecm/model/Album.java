@@ -4,6 +4,7 @@ import allaboutecm.dataaccess.neo4j.URLConverter;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
+import org.neo4j.ogm.annotation.CompositeIndex;
 import org.neo4j.ogm.annotation.NodeEntity;
 import org.neo4j.ogm.annotation.Property;
 import org.neo4j.ogm.annotation.Relationship;
@@ -27,6 +28,7 @@ import static org.apache.commons.lang3.Validate.*;
  * See {@https://www.ecmrecords.com/catalogue/143038750696/the-koln-concert-keith-jarrett}
  */
 @NodeEntity
+@CompositeIndex({"albumName", "recordNumber", "releaseYear"})
 public class Album extends Entity {
 
     @Property(name="releaseYear")
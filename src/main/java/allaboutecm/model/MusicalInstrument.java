@@ -1,11 +1,14 @@
 package allaboutecm.model;
 
+import org.neo4j.ogm.annotation.Index;
+
 import java.util.Objects;
 
 import static org.apache.commons.lang3.Validate.notBlank;
 import static org.apache.commons.lang3.Validate.notNull;
 
 public class MusicalInstrument extends Entity {
+    @Index(unique = true)
     private String name;
 
     public MusicalInstrument() {
@@ -3,6 +3,7 @@ package allaboutecm.model;
 import allaboutecm.dataaccess.neo4j.URLConverter;
 import com.google.common.collect.Sets;
 import org.apache.logging.log4j.core.tools.picocli.CommandLine;
+import org.neo4j.ogm.annotation.Index;
 import org.neo4j.ogm.annotation.NodeEntity;
 import org.neo4j.ogm.annotation.Property;
 import org.neo4j.ogm.annotation.Relationship;
@@ -26,6 +27,7 @@ import static org.apache.commons.lang3.Validate.notNull;
  */
 @NodeEntity
 public class Musician extends Entity {
+    @Index(unique = true)
     @Property(name="name")
     private String name;
 
@@ -0,0 +1,112 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncDAOUnitTest {
+    private DAO dao;
+    private AsyncDAO asyncDAO;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        asyncDAO = new AsyncDAO(dao, 4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        asyncDAO.close();
+    }
+
+    @Test
+    @DisplayName("Futures should complete with what the DAO returns")
+    public void futuresShouldCompleteWithDAOResults() throws Exception {
+        Album album = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Musician musician = new Musician("Keith Jarrett");
+        when(dao.load(Album.class, 1L)).thenReturn(album);
+        when(dao.loadAll(Album.class)).thenReturn(Sets.newHashSet(album));
+        when(dao.findMusicianByName("Keith Jarrett")).thenReturn(musician);
+        when(dao.createOrUpdate(musician)).thenReturn(musician);
+
+        assertSame(album, asyncDAO.load(Album.class, 1L).get());
+        assertEquals(Sets.newHashSet(album), asyncDAO.loadAll(Album.class).get());
+        assertSame(musician, asyncDAO.findMusicianByName("Keith Jarrett").get());
+        assertSame(musician, asyncDAO.createOrUpdate(musician).get());
+        asyncDAO.delete(album).get();
+        verify(dao).delete(album);
+    }
+
+    @Test
+    @DisplayName("Lookups should run at the same time and off the caller thread")
+    public void lookupsShouldRunConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Thread caller = Thread.currentThread();
+        when(dao.findMusicianByName(anyString())).thenAnswer(invocation -> {
+            assertNotSame(caller, Thread.currentThread());
+            bothStarted.countDown();
+            // only returns once the other lookup is running too
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            return null;
+        });
+
+        CompletableFuture<Musician> keith = asyncDAO.findMusicianByName("Keith Jarrett");
+        CompletableFuture<Musician> jan = asyncDAO.findMusicianByName("Jan Garbarek");
+
+        CompletableFuture.allOf(keith, jan).get(10, TimeUnit.SECONDS);
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    @DisplayName("Failures of the DAO should complete the future exceptionally")
+    public void failuresShouldCompleteExceptionally() {
+        when(dao.load(Album.class, 2L)).thenThrow(new IllegalStateException("No session"));
+
+        CompletableFuture<Album> album = asyncDAO.load(Album.class, 2L);
+
+        Exception e = assertThrows(Exception.class, album::get);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    @DisplayName("Without virtual threads the default executor should be bounded")
+    public void defaultExecutorShouldBeBoundedWithoutVirtualThreads() {
+        ExecutorService executor = AsyncDAO.defaultExecutor(3);
+        try {
+            if (executor instanceof ThreadPoolExecutor) {
+                assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> AsyncDAO.defaultExecutor(0));
+    }
+
+    @Test
+    @DisplayName("Closing should only shut down an executor the DAO created")
+    public void closeShouldOnlyShutDownOwnExecutor() {
+        ExecutorService given = Executors.newSingleThreadExecutor();
+        try {
+            new AsyncDAO(dao, given).close();
+            assertFalse(given.isShutdown());
+        } finally {
+            given.shutdown();
+        }
+        asyncDAO.close();
+        assertTrue(((ExecutorService) asyncDAO.getExecutor()).isShutdown());
+    }
+}
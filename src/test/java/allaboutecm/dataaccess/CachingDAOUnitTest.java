@@ -0,0 +1,136 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingDAOUnitTest {
+    private DAO dao;
+    private CachingDAO cachingDAO;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        cachingDAO = new CachingDAO(dao, 100, 1, TimeUnit.HOURS);
+    }
+
+    @Test
+    @DisplayName("Repeated lookups should only reach the DAO once")
+    public void repeatedLookupsShouldBeCached() throws IOException {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Musician keith = new Musician("Keith Jarrett");
+        when(dao.load(Album.class, 1L)).thenReturn(koln);
+        when(dao.findMusicianByName("Keith Jarrett")).thenReturn(keith);
+        when(dao.loadAll(Album.class)).thenReturn(Sets.newHashSet(koln));
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(koln, cachingDAO.load(Album.class, 1L));
+            assertSame(keith, cachingDAO.findMusicianByName("Keith Jarrett"));
+            assertEquals(Lists.newArrayList(koln), cachingDAO.loadAll(Album.class));
+            assertNull(cachingDAO.findMusicianByName("Jan Garbarek"));
+        }
+
+        verify(dao, times(1)).load(Album.class, 1L);
+        verify(dao, times(1)).findMusicianByName("Keith Jarrett");
+        verify(dao, times(1)).findMusicianByName("Jan Garbarek");
+        verify(dao, times(1)).loadAll(Album.class);
+        assertEquals(8, cachingDAO.stats().hitCount());
+        assertEquals(4, cachingDAO.stats().missCount());
+        assertThrows(UnsupportedOperationException.class, () -> cachingDAO.loadAll(Album.class).add(koln));
+    }
+
+    @Test
+    @DisplayName("Saving should invalidate the saved entity, the ones saved with it and their collections")
+    public void savingShouldInvalidateSavedEntities() throws IOException {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        koln.setId(1L);
+        Musician keith = new Musician("Keith Jarrett");
+        keith.setId(2L);
+        keith.setAlbums(Sets.newHashSet(koln));
+        when(dao.load(Album.class, 1L)).thenReturn(koln);
+        when(dao.loadAll(Album.class)).thenReturn(Sets.newHashSet(koln));
+        when(dao.findMusicianByName("Keith Jarrett")).thenReturn(keith);
+        Album other = new Album(1977, "ECM 1090", "My Song");
+        when(dao.load(Album.class, 3L)).thenReturn(other);
+        cachingDAO.load(Album.class, 1L);
+        cachingDAO.load(Album.class, 3L);
+        cachingDAO.loadAll(Album.class);
+        cachingDAO.findMusicianByName("Keith Jarrett");
+
+        keith.setName("Jan Garbarek");
+        cachingDAO.createOrUpdate(keith);
+        cachingDAO.load(Album.class, 1L);
+        cachingDAO.load(Album.class, 3L);
+        cachingDAO.loadAll(Album.class);
+        cachingDAO.findMusicianByName("Keith Jarrett");
+
+        verify(dao, times(2)).load(Album.class, 1L);
+        verify(dao, times(1)).load(Album.class, 3L);
+        verify(dao, times(2)).loadAll(Album.class);
+        verify(dao, times(2)).findMusicianByName("Keith Jarrett");
+    }
+
+    @Test
+    @DisplayName("A cascade delete should invalidate every cached entity of the class it cascades to")
+    public void cascadeDeleteShouldInvalidateCascadedClass() throws IOException {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        when(dao.load(Album.class, 1L)).thenReturn(koln);
+        when(dao.loadAll(Musician.class)).thenReturn(Lists.newArrayList());
+        cachingDAO.load(Album.class, 1L);
+        cachingDAO.loadAll(Musician.class);
+
+        cachingDAO.deleteAlbumsInMusicians(Lists.newArrayList(new Musician("Keith Jarrett")));
+        cachingDAO.load(Album.class, 1L);
+        cachingDAO.loadAll(Musician.class);
+
+        verify(dao).deleteAlbumsInMusicians(anyCollection());
+        verify(dao, times(2)).load(Album.class, 1L);
+        verify(dao, times(2)).loadAll(Musician.class);
+    }
+
+    @Test
+    @DisplayName("The cache should evict entries beyond its size")
+    public void cacheShouldEvictBeyondItsSize() {
+        CachingDAO small = new CachingDAO(dao, 2, 1, TimeUnit.HOURS);
+        for (long id = 0; id < 5; id++) {
+            small.load(Album.class, id);
+        }
+
+        assertEquals(3, small.entityStats().evictionCount());
+    }
+
+    @Test
+    @DisplayName("A batch lookup by names should only ask the DAO for the names not cached")
+    public void batchNameLookupShouldOnlyAskForMissingNames() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician jan = new Musician("Jan Garbarek");
+        when(dao.findMusicianByName("Keith Jarrett")).thenReturn(keith);
+        when(dao.findMusiciansByNames(Lists.newArrayList("Jan Garbarek", "Charlie Haden")))
+                .thenReturn(ImmutableMap.of("Jan Garbarek", jan));
+        cachingDAO.findMusicianByName("Keith Jarrett");
+
+        Map<String, Musician> found = cachingDAO.findMusiciansByNames(
+                Lists.newArrayList("Jan Garbarek", "Keith Jarrett", "Charlie Haden"));
+        Map<String, Musician> again = cachingDAO.findMusiciansByNames(
+                Lists.newArrayList("Charlie Haden", "Jan Garbarek", "Keith Jarrett"));
+
+        assertEquals(Lists.newArrayList("Jan Garbarek", "Keith Jarrett"), Lists.newArrayList(found.keySet()));
+        assertSame(keith, found.get("Keith Jarrett"));
+        assertEquals(Lists.newArrayList("Jan Garbarek", "Keith Jarrett"), Lists.newArrayList(again.keySet()));
+        verify(dao, times(1)).findMusiciansByNames(anyCollection());
+        assertSame(jan, cachingDAO.findMusicianByName("Jan Garbarek"));
+        verify(dao, never()).findMusicianByName("Jan Garbarek");
+    }
+}
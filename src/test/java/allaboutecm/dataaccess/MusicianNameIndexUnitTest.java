@@ -0,0 +1,99 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicianNameIndexUnitTest {
+    private MusicianNameIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new MusicianNameIndex();
+        index.put(1L, "Keith Jarrett");
+        index.put(2L, "Kenny Wheeler");
+        index.put(3L, "keith jarrett");
+        index.put(4L, "Jan Garbarek");
+    }
+
+    @Test
+    @DisplayName("Exact lookups should match the whole name with its case")
+    public void exactLookupsShouldMatchCase() {
+        assertEquals(Long.valueOf(1L), index.get("Keith Jarrett"));
+        assertNull(index.get("KEITH JARRETT"));
+        assertNull(index.get("Keith"));
+        assertEquals(ImmutableMap.of("Jan Garbarek", 4L, "Keith Jarrett", 1L),
+                index.getAll(Lists.newArrayList("Jan Garbarek", "Charlie Haden", "Keith Jarrett")));
+    }
+
+    @Test
+    @DisplayName("Lookups ignoring case should return every musician with the folded name")
+    public void ignoreCaseLookupsShouldReturnEveryMatch() {
+        assertEquals(Lists.newArrayList(1L, 3L), index.getIgnoreCase("KEITH JARRETT"));
+        assertEquals(Collections.emptyList(), index.getIgnoreCase("Keith"));
+    }
+
+    @Test
+    @DisplayName("Prefix lookups should return the names in folded order up to the limit")
+    public void prefixLookupsShouldBeOrderedAndLimited() {
+        assertEquals(Lists.newArrayList(1L, 3L, 2L), index.startingWith("KE", 10));
+        assertEquals(Lists.newArrayList(1L, 3L), index.startingWith("ke", 2));
+        assertEquals(Lists.newArrayList(4L, 1L, 3L, 2L), index.startingWith("", 10));
+        assertEquals(Collections.emptyList(), index.startingWith("Z", 10));
+        assertThrows(IllegalArgumentException.class, () -> index.startingWith("K", 0));
+    }
+
+    @Test
+    @DisplayName("Non-ASCII names should be folded in the root locale")
+    public void nonAsciiNamesShouldBeFoldedInRootLocale() {
+        index.put(5L, "\u00C9lise Ir\u00E8ne");
+        index.put(6L, "\u00E9lise Stra\u00DFe");
+
+        assertEquals(Lists.newArrayList(5L), index.getIgnoreCase("\u00E9LISE IR\u00C8NE"));
+        assertEquals(Lists.newArrayList(5L, 6L), index.startingWith("\u00C9LISE", 10));
+        // in the root locale I folds to i whatever the default locale is, the dotted capital I does not
+        assertEquals(Lists.newArrayList(5L), index.startingWith("\u00C9LISE I", 10));
+        assertEquals(Collections.emptyList(), index.startingWith("\u00C9LISE \u0130", 10));
+    }
+
+    @Test
+    @DisplayName("Renaming and removing should be seen by the next lookup")
+    public void changesShouldBeSeenByNextLookup() {
+        assertEquals(3, index.startingWith("k", 10).size());
+
+        index.put(2L, "Charlie Haden");
+        index.remove(3L);
+
+        assertNull(index.get("Kenny Wheeler"));
+        assertEquals(Long.valueOf(2L), index.get("Charlie Haden"));
+        assertEquals(Lists.newArrayList(1L), index.startingWith("k", 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    @DisplayName("As a listener it should index the musicians saved with an album and forget deleted ones")
+    public void listenerShouldFollowSavesAndDeletes() throws IOException {
+        MusicianNameIndex listening = new MusicianNameIndex();
+        Musician keith = new Musician("Keith Jarrett");
+        keith.setId(10L);
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        koln.setId(11L);
+        koln.setFeaturedMusicians(Lists.newArrayList(keith));
+
+        listening.saved(koln);
+        assertEquals(Long.valueOf(10L), listening.get("Keith Jarrett"));
+
+        listening.deleted(keith);
+        assertNull(listening.get("Keith Jarrett"));
+        assertEquals(0, listening.size());
+    }
+}
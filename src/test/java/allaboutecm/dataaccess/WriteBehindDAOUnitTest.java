@@ -0,0 +1,204 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WriteBehindDAOUnitTest {
+    private DAO dao;
+    private WriteBehindDAO writeBehindDAO;
+
+    @BeforeEach
+    public void setUp() {
+        dao = mock(DAO.class);
+        writeBehindDAO = new WriteBehindDAO(dao, 3, 0, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writeBehindDAO.close();
+    }
+
+    @Test
+    @DisplayName("Saves of the same entity before a flush should be written once")
+    public void savesOfSameEntityShouldBeCoalesced() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician sameKeith = new Musician("Keith Jarrett");
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        koln.setId(1L);
+        Album renamed = new Album(1975, "ECM 1064/65", "Koln Concert");
+        renamed.setId(1L);
+
+        writeBehindDAO.createOrUpdate(keith);
+        writeBehindDAO.createOrUpdate(koln);
+        writeBehindDAO.createOrUpdate(sameKeith);
+        writeBehindDAO.createOrUpdate(renamed);
+        verify(dao, never()).createOrUpdateAll(any());
+        assertEquals(2, writeBehindDAO.getPending());
+        assertEquals(4, writeBehindDAO.getBuffered());
+        assertEquals(2, writeBehindDAO.getCoalesced());
+
+        writeBehindDAO.flush();
+        verify(dao).createOrUpdateAll(Lists.<Entity>newArrayList(sameKeith, renamed));
+        assertEquals(0, writeBehindDAO.getPending());
+        assertEquals(1, writeBehindDAO.getFlushes());
+    }
+
+    @Test
+    @DisplayName("A full buffer should be written by the saving thread before it takes another entity")
+    public void fullBufferShouldBeFlushed() throws IOException {
+        writeBehindDAO.createOrUpdate(new Musician("Keith Jarrett"));
+        writeBehindDAO.createOrUpdate(new Musician("Jan Garbarek"));
+        writeBehindDAO.createOrUpdate(new Musician("Charlie Haden"));
+        verify(dao, never()).createOrUpdateAll(any());
+        assertEquals(3, writeBehindDAO.getPending());
+
+        writeBehindDAO.createOrUpdate(new Musician("Paul Motian"));
+        verify(dao, times(1)).createOrUpdateAll(any());
+        assertEquals(1, writeBehindDAO.getPending());
+    }
+
+    @Test
+    @DisplayName("A save into a full buffer that cannot be written should fail without being buffered")
+    public void saveShouldFailWhenFullBufferCannotBeWritten() throws IOException {
+        WriteBehindListener listener = mock(WriteBehindListener.class);
+        writeBehindDAO.addListener(listener);
+        doThrow(new IllegalStateException("store unavailable")).when(dao).createOrUpdateAll(any());
+        writeBehindDAO.createOrUpdate(new Musician("Keith Jarrett"));
+        writeBehindDAO.createOrUpdate(new Musician("Jan Garbarek"));
+        writeBehindDAO.createOrUpdate(new Musician("Charlie Haden"));
+
+        for (int i = 0; i < 3; i++) {
+            Musician paul = new Musician("Paul Motian");
+            assertThrows(IllegalStateException.class, () -> writeBehindDAO.createOrUpdate(paul));
+            verify(listener, never()).buffered(paul);
+        }
+        assertEquals(3, writeBehindDAO.getPending());
+        assertEquals(3, writeBehindDAO.getBuffered());
+
+        // a save of an entity already buffered needs no room
+        writeBehindDAO.createOrUpdate(new Musician("Jan Garbarek"));
+        assertEquals(3, writeBehindDAO.getPending());
+        assertEquals(1, writeBehindDAO.getCoalesced());
+
+        // once the store is back, the next save writes the buffer and goes in
+        doAnswer(invocation -> invocation.getArgument(0)).when(dao).createOrUpdateAll(any());
+        writeBehindDAO.createOrUpdate(new Musician("Paul Motian"));
+        assertEquals(1, writeBehindDAO.getPending());
+        assertEquals(1, writeBehindDAO.getFlushes());
+    }
+
+    @Test
+    @DisplayName("The buffer should be written in the background every flush interval")
+    public void bufferShouldBeFlushedOnInterval() throws IOException {
+        writeBehindDAO = new WriteBehindDAO(dao, 100, 10, TimeUnit.MILLISECONDS);
+        Musician keith = new Musician("Keith Jarrett");
+        writeBehindDAO.createOrUpdate(keith);
+
+        verify(dao, timeout(5000)).createOrUpdateAll(Lists.<Entity>newArrayList(keith));
+    }
+
+    @Test
+    @DisplayName("Deletes should be applied after the saves buffered before them")
+    public void deleteShouldFlushFirst() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        keith.setId(1L);
+        writeBehindDAO.createOrUpdate(keith);
+
+        writeBehindDAO.delete(keith);
+        InOrder inOrder = inOrder(dao);
+        inOrder.verify(dao).createOrUpdateAll(Lists.<Entity>newArrayList(keith));
+        inOrder.verify(dao).delete(keith);
+    }
+
+    @Test
+    @DisplayName("A failed batch should stay buffered behind newer saves of the same entities")
+    public void failedBatchShouldBeRequeued() throws IOException {
+        WriteBehindListener listener = mock(WriteBehindListener.class);
+        writeBehindDAO.addListener(listener);
+        Musician keith = new Musician("Keith Jarrett");
+        Musician jan = new Musician("Jan Garbarek");
+        IllegalStateException failure = new IllegalStateException("store unavailable");
+        doThrow(failure).doAnswer(invocation -> invocation.getArgument(0)).when(dao).createOrUpdateAll(any());
+
+        writeBehindDAO.createOrUpdate(keith);
+        writeBehindDAO.createOrUpdate(jan);
+        assertThrows(IllegalStateException.class, () -> writeBehindDAO.flush());
+        verify(listener).failed(Lists.<Entity>newArrayList(keith, jan), failure);
+        assertEquals(2, writeBehindDAO.getPending());
+
+        Musician newerJan = new Musician("Jan Garbarek");
+        writeBehindDAO.createOrUpdate(newerJan);
+        writeBehindDAO.flush();
+        ArgumentCaptor<Collection<Entity>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(dao, times(2)).createOrUpdateAll(batch.capture());
+        List<Entity> written = Lists.newArrayList(batch.getValue());
+        assertEquals(2, written.size());
+        assertSame(keith, written.get(0));
+        assertSame(newerJan, written.get(1));
+        verify(listener).flushed(written);
+    }
+
+    @Test
+    @DisplayName("An entity changed and saved again while it is written should be written again")
+    public void entitySavedAgainDuringWriteShouldStayBuffered() throws Exception {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        koln.setId(1L);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch resaved = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            resaved.await(10, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        }).doAnswer(invocation -> invocation.getArgument(0)).when(dao).createOrUpdateAll(any());
+
+        writeBehindDAO.createOrUpdate(koln);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> flush = executor.submit(writeBehindDAO::flush);
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+            koln.setAlbumName("Koln Concert");
+            writeBehindDAO.createOrUpdate(koln);
+            resaved.countDown();
+            flush.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, writeBehindDAO.getPending());
+
+        writeBehindDAO.flush();
+        verify(dao, times(2)).createOrUpdateAll(Lists.<Entity>newArrayList(koln));
+        assertEquals(0, writeBehindDAO.getPending());
+    }
+
+    @Test
+    @DisplayName("Closing should write the buffer and refuse later saves")
+    public void closeShouldFlushAndRefuseSaves() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        writeBehindDAO.createOrUpdate(keith);
+
+        writeBehindDAO.close();
+        verify(dao).createOrUpdateAll(Lists.<Entity>newArrayList(keith));
+        assertThrows(IllegalStateException.class, () -> writeBehindDAO.createOrUpdate(new Musician("Jan Garbarek")));
+    }
+}
@@ -0,0 +1,163 @@
+package allaboutecm.dataaccess.memory;
+
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.MusicalInstrument;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianInstrument;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryDAOUnitTest {
+    private InMemoryDAO dao;
+
+    @BeforeEach
+    public void setUp() {
+        dao = new InMemoryDAO();
+    }
+
+    @Test
+    @DisplayName("Saving an entity with the natural key of a stored one should update it")
+    public void savingSameNaturalKeyShouldUpdate() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        dao.createOrUpdate(keith);
+        Musician again = new Musician("Keith Jarrett");
+        dao.createOrUpdate(again);
+
+        assertEquals(keith.getId(), again.getId());
+        assertEquals(1, dao.loadAll(Musician.class).size());
+        assertSame(again, dao.findMusicianByName("Keith Jarrett"));
+    }
+
+    @Test
+    @DisplayName("A renamed entity should only be found by its new name")
+    public void renamedEntityShouldBeFoundByNewName() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        dao.createOrUpdate(keith);
+        keith.setName("Jan Garbarek");
+        dao.createOrUpdate(keith);
+
+        assertNull(dao.findMusicianByName("Keith Jarrett"));
+        assertSame(keith, dao.findMusicianByName("Jan Garbarek"));
+        assertSame(keith, dao.load(Musician.class, keith.getId()));
+        assertNull(dao.load(Album.class, keith.getId()));
+    }
+
+    @Test
+    @DisplayName("An entity renamed to the name of another should replace it and leave its own id empty")
+    public void entityRenamedOntoAnotherShouldLeaveItsIdEmpty() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician jan = new Musician("Jan Garbarek");
+        dao.createOrUpdateAll(Lists.newArrayList(keith, jan));
+        Long keithId = keith.getId();
+
+        keith.setName("Jan Garbarek");
+        dao.createOrUpdate(keith);
+
+        assertEquals(jan.getId(), keith.getId());
+        assertNull(dao.load(Musician.class, keithId));
+        assertEquals(Lists.newArrayList(keith), Lists.newArrayList(dao.loadAll(Musician.class)));
+        assertSame(keith, dao.findMusicianByName("Jan Garbarek"));
+        assertNull(dao.findMusicianByName("Keith Jarrett"));
+        assertEquals(1, dao.findMusiciansByNamePrefix("", 10).size());
+    }
+
+    @Test
+    @DisplayName("Saving an entity with the id of an entity of another class should be rejected")
+    public void idOfAnotherClassShouldBeRejected() throws IOException {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        dao.createOrUpdate(koln);
+        Musician keith = new Musician("Keith Jarrett");
+        keith.setId(koln.getId());
+
+        assertThrows(IllegalArgumentException.class, () -> dao.createOrUpdate(keith));
+        assertSame(koln, dao.load(Album.class, koln.getId()));
+        assertTrue(dao.loadAll(Musician.class).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Lookups by many names, ignoring case and by prefix should follow renames")
+    public void nameLookupsShouldFollowRenames() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician kenny = new Musician("Kenny Wheeler");
+        dao.createOrUpdateAll(Lists.newArrayList(keith, kenny, new Musician("Jan Garbarek")));
+
+        assertEquals(Lists.newArrayList("Kenny Wheeler", "Keith Jarrett"), Lists.newArrayList(
+                dao.findMusiciansByNames(Lists.newArrayList("Kenny Wheeler", "Charlie Haden", "Keith Jarrett")).keySet()));
+        assertEquals(Lists.newArrayList(keith), dao.findMusiciansByNameIgnoreCase("keith JARRETT"));
+        assertEquals(Lists.newArrayList(keith, kenny), dao.findMusiciansByNamePrefix("KE", 10));
+        // folded like Neo4jDAO folds them: the Kelvin sign to k, the dotted capital I to i and a combining dot
+        assertEquals(Lists.newArrayList(keith, kenny), dao.findMusiciansByNamePrefix("\u212Ae", 10));
+        assertTrue(dao.findMusiciansByNameIgnoreCase("KE\u0130TH JARRETT").isEmpty());
+
+        keith.setName("Charlie Haden");
+        dao.createOrUpdate(keith);
+        dao.delete(kenny);
+
+        assertTrue(dao.findMusiciansByNamePrefix("ke", 10).isEmpty());
+        assertEquals(Lists.newArrayList(keith), dao.findMusiciansByNamePrefix("ch", 10));
+    }
+
+    @Test
+    @DisplayName("Deleting musicians with their albums should keep the other albums")
+    public void deleteAlbumsInMusiciansShouldKeepOtherAlbums() throws IOException {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album mySong = new Album(1977, "ECM 1090", "My Song");
+        Musician keith = new Musician("Keith Jarrett");
+        keith.setAlbums(Sets.newHashSet(koln));
+        dao.createOrUpdate(keith);
+        dao.createOrUpdate(mySong);
+
+        dao.deleteAlbumsInMusicians(Lists.newArrayList(new Musician("Keith Jarrett")));
+
+        assertTrue(dao.loadAll(Musician.class).isEmpty());
+        assertEquals(Lists.newArrayList(mySong), dao.loadAll(Album.class));
+        assertEquals(1, dao.size());
+    }
+
+    @Test
+    @DisplayName("Deleting musicians with their instruments should notify every deleted entity")
+    public void deleteMusiciansAndMusicianInstrumentsShouldNotify() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        MusicianInstrument keithPiano = new MusicianInstrument(keith, Sets.newHashSet(new MusicalInstrument("Piano")));
+        dao.createOrUpdate(keithPiano);
+        List<Entity> deleted = Lists.newArrayList();
+        dao.addListener(new DAOListener() {
+            @Override
+            public void saved(Entity entity) {
+            }
+
+            @Override
+            public void deleted(Entity entity) {
+                deleted.add(entity);
+            }
+        });
+
+        dao.deleteMusicianAndMusicianInstrumentAlsoBeDeleted(keith);
+
+        assertEquals(Lists.newArrayList(keithPiano, keith), deleted);
+        assertTrue(dao.loadAll(MusicianInstrument.class).isEmpty());
+        assertEquals(1, dao.loadAll(MusicalInstrument.class).size());
+    }
+
+    @Test
+    @DisplayName("Projections should read the numeric fields by property name")
+    public void projectShouldReadNumericFields() {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        koln.setPrice(20);
+        dao.createOrUpdate(koln);
+
+        assertEquals(20, dao.project(Album.class, "price").getValue("price", 0));
+        assertTrue(dao.project(Album.class, "rating").isMissing("rating", 0));
+        assertThrows(IllegalArgumentException.class, () -> dao.project(Album.class, "albumName"));
+    }
+}
@@ -0,0 +1,60 @@
+package allaboutecm.dataaccess.neo4j;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NaturalKeyCacheUnitTest {
+    private static List<Object> key(String name) {
+        return Arrays.asList("Musician", name);
+    }
+
+    @Test
+    @DisplayName("The least recently used key should be evicted first")
+    public void leastRecentlyUsedKeyShouldBeEvicted() {
+        NaturalKeyCache cache = new NaturalKeyCache(2, 100);
+        cache.put(key("Keith Jarrett"), 1L);
+        cache.put(key("Jan Garbarek"), 2L);
+        cache.get(key("Keith Jarrett"));
+        cache.put(key("Arvo Part"), 3L);
+
+        assertEquals(2, cache.size());
+        assertEquals(1L, cache.get(key("Keith Jarrett")));
+        assertNull(cache.get(key("Jan Garbarek")));
+        assertTrue(cache.mightBeStored(key("Jan Garbarek")));
+    }
+
+    @Test
+    @DisplayName("A renamed node should only be cached under its new key")
+    public void renamedNodeShouldForgetItsOldKey() {
+        NaturalKeyCache cache = new NaturalKeyCache(10, 100);
+        cache.put(key("Mia"), 1L);
+        cache.put(key("Mia Li"), 1L);
+
+        assertNull(cache.get(key("Mia")));
+        assertEquals(1L, cache.get(key("Mia Li")));
+    }
+
+    @Test
+    @DisplayName("A deleted node should be forgotten but its key may still be stored")
+    public void deletedNodeShouldBeForgotten() {
+        NaturalKeyCache cache = new NaturalKeyCache(10, 100);
+        cache.put(key("Keith Jarrett"), 1L);
+        cache.remove(1L);
+
+        assertNull(cache.get(key("Keith Jarrett")));
+        assertTrue(cache.mightBeStored(key("Keith Jarrett")));
+        assertFalse(cache.mightBeStored(key("Jan Garbarek")));
+    }
+
+    @Test
+    @DisplayName("Capacity should be more than 0")
+    public void capacityShouldBeMoreThanZero() {
+        assertThrows(IllegalArgumentException.class, () -> new NaturalKeyCache(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new NaturalKeyCache(10, 0));
+    }
+}
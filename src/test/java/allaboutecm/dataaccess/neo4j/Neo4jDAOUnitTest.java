@@ -1,7 +1,11 @@
 package allaboutecm.dataaccess.neo4j;
 
 import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.FetchPlan;
+import allaboutecm.dataaccess.Projection;
 import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
 import allaboutecm.model.MusicalInstrument;
 import allaboutecm.model.Musician;
 import allaboutecm.model.MusicianInstrument;
@@ -9,6 +13,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.junit.jupiter.api.*;
 import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.context.MappingContext;
+import org.neo4j.ogm.session.Neo4jSession;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.session.SessionFactory;
 
@@ -17,6 +23,9 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -508,14 +517,380 @@ class Neo4jDAOUnitTest {
 
 
 
-}
+    @DisplayName("createOrUpdateAll should write every entity in batches and report every batch")
+    @Test
+    public void createOrUpdateAllShouldWriteInBatches() {
+        Neo4jDAO neo4jDAO = (Neo4jDAO) dao;
+        List<Integer> batches = Lists.newArrayList();
+        DAOListener listener = new DAOListener() {
+            @Override
+            public void saved(Entity entity) {
+            }
+
+            @Override
+            public void deleted(Entity entity) {
+            }
+
+            @Override
+            public void batchSaved(int entities, long elapsedNanos) {
+                batches.add(entities);
+            }
+        };
+        neo4jDAO.addListener(listener);
+        neo4jDAO.setBatchSize(2);
+        List<Album> albums = Lists.newArrayList(
+                new Album(1975, "ECM 1064/65", "The Koln Concert"),
+                new Album(1973, "ECM 1035/37", "Bremen Lausanne"),
+                new Album(1978, "ECM 1100", "Sun Bear Concerts"),
+                new Album(1977, "ECM 1090", "My Song"),
+                new Album(1971, "ECM 1017", "Facing You"));
+        try {
+            neo4jDAO.createOrUpdateAll(albums);
+        } finally {
+            neo4jDAO.removeListener(listener);
+            neo4jDAO.setBatchSize(1000);
+        }
+
+        assertEquals(Lists.newArrayList(2, 2, 1), batches);
+        assertEquals(5, dao.loadAll(Album.class).size());
+        for (Album album : albums) {
+            assertNotNull(album.getId());
+        }
+    }
+
+    @DisplayName("createOrUpdateAll should update the entities already stored instead of creating them again")
+    @Test
+    public void createOrUpdateAllShouldUpdateExistingEntities() throws MalformedURLException {
+        Album stored = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        dao.createOrUpdate(stored);
+        dao.createOrUpdate(new Musician("Keith Jarrett"));
+
+        Album album = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        album.setPrice(20);
+        Musician musician = new Musician("Keith Jarrett");
+        dao.createOrUpdateAll(Lists.newArrayList(album, new Album(1977, "ECM 1090", "My Song")));
+        dao.createOrUpdateAll(Lists.newArrayList(musician));
+
+        assertEquals(stored.getId(), album.getId());
+        assertEquals(2, dao.loadAll(Album.class).size());
+        assertEquals(1, dao.loadAll(Musician.class).size());
+        assertEquals(20, dao.load(Album.class, stored.getId()).getPrice());
+    }
+
+    @DisplayName("An entity given twice to createOrUpdateAll should only be stored once")
+    @Test
+    public void createOrUpdateAllShouldStoreRepeatedEntitiesOnce() throws MalformedURLException {
+        dao.createOrUpdateAll(Lists.newArrayList(new Musician("Keith Jarrett"), new Musician("Keith Jarrett")));
+
+        assertEquals(1, dao.loadAll(Musician.class).size());
+    }
+
+    @DisplayName("createOrUpdate should merge entities with the same natural key on one node")
+    @Test
+    public void createOrUpdateShouldMergeOnNaturalKey() throws MalformedURLException {
+        Album first = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album second = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        second.setPrice(20);
+        MusicalInstrument piano = new MusicalInstrument("Piano");
+
+        dao.createOrUpdate(first);
+        dao.createOrUpdate(second);
+        dao.createOrUpdate(piano);
+        dao.createOrUpdate(new MusicalInstrument("Piano"));
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1, dao.loadAll(Album.class).size());
+        assertEquals(20, dao.load(Album.class, first.getId()).getPrice());
+        assertEquals(1, dao.loadAll(MusicalInstrument.class).size());
+    }
+
+    @DisplayName("An entity saved again after being saved should update its own node even when renamed")
+    @Test
+    public void savedEntityShouldBeUpdatedInPlaceWhenRenamed() throws MalformedURLException {
+        Musician musician = new Musician("Mia");
+        dao.createOrUpdate(musician);
+        Long id = musician.getId();
+
+        musician.setName("Mia Li");
+        dao.createOrUpdate(musician);
+
+        assertEquals(id, musician.getId());
+        assertEquals(1, dao.loadAll(Musician.class).size());
+        assertEquals("Mia Li", dao.load(Musician.class, id).getName());
+    }
+
+    @DisplayName("The identity cache should find the nodes saved before and by cascade")
+    @Test
+    public void identityCacheShouldFindSavedNodes() throws MalformedURLException {
+        Neo4jDAO neo4jDAO = (Neo4jDAO) dao;
+        dao.createOrUpdate(new Album(1971, "ECM 1017", "Facing You"));
+        neo4jDAO.enableIdentityCache(100, 1000);
+        try {
+            Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+            Musician musician = new Musician("Keith Jarrett");
+            musician.setAlbums(Sets.newHashSet(koln));
+            dao.createOrUpdate(musician);
+
+            Album sameKoln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+            dao.createOrUpdate(sameKoln);
+            Album facingYou = new Album(1971, "ECM 1017", "Facing You");
+            dao.createOrUpdate(facingYou);
+            dao.createOrUpdate(new Musician("Keith Jarrett"));
+
+            assertEquals(koln.getId(), sameKoln.getId());
+            assertEquals(2, dao.loadAll(Album.class).size());
+            assertEquals(1, dao.loadAll(Musician.class).size());
+        } finally {
+            neo4jDAO.disableIdentityCache();
+        }
+    }
+
+    @DisplayName("The identity cache should forget deleted nodes")
+    @Test
+    public void identityCacheShouldForgetDeletedNodes() {
+        Neo4jDAO neo4jDAO = (Neo4jDAO) dao;
+        neo4jDAO.enableIdentityCache(100, 1000);
+        try {
+            Album album = new Album(1975, "ECM 1064/65", "The Koln Concert");
+            dao.createOrUpdate(album);
+            dao.delete(album);
+
+            Album again = new Album(1975, "ECM 1064/65", "The Koln Concert");
+            dao.createOrUpdate(again);
+
+            assertNotNull(dao.load(Album.class, again.getId()));
+            assertEquals(1, dao.loadAll(Album.class).size());
+        } finally {
+            neo4jDAO.disableIdentityCache();
+        }
+    }
 
+    @DisplayName("Deleting many musicians should delete their stored albums and keep the others")
+    @Test
+    public void deleteAlbumsInMusiciansShouldDeleteStoredAlbums() throws IOException {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album mySong = new Album(1977, "ECM 1090", "My Song");
+        Album beauty = new Album(2008, "ECM 1998/72", "Beauty");
+        Musician keith = new Musician("Keith Jarrett");
+        keith.setAlbums(Sets.newHashSet(koln, mySong));
+        Musician jan = new Musician("Jan Garbarek");
+        jan.setAlbums(Sets.newHashSet(mySong));
+        Musician mia = new Musician("Mia");
+        mia.setAlbums(Sets.newHashSet(beauty));
+        dao.createOrUpdate(keith);
+        dao.createOrUpdate(jan);
+        dao.createOrUpdate(mia);
+
+        dao.deleteAlbumsInMusicians(Lists.newArrayList(new Musician("Keith Jarrett"), new Musician("Jan Garbarek")));
+
+        assertEquals(Lists.newArrayList(mia), Lists.newArrayList(dao.loadAll(Musician.class)));
+        assertEquals(Lists.newArrayList(beauty), Lists.newArrayList(dao.loadAll(Album.class)));
+    }
+
+    @DisplayName("Deleting many musicians should delete their musician instruments and notify every deleted entity")
+    @Test
+    public void deleteMusiciansAndMusicianInstrumentsShouldNotifyEveryEntity() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician jan = new Musician("Jan Garbarek");
+        Musician mia = new Musician("Mia");
+        MusicalInstrument piano = new MusicalInstrument("Piano");
+        dao.createOrUpdate(new MusicianInstrument(keith, Sets.newHashSet(piano)));
+        dao.createOrUpdate(new MusicianInstrument(jan, Sets.newHashSet(piano)));
+        dao.createOrUpdate(new MusicianInstrument(mia, Sets.newHashSet(piano)));
+        List<Entity> deleted = Lists.newArrayList();
+        DAOListener listener = new DAOListener() {
+            @Override
+            public void saved(Entity entity) {
+            }
+
+            @Override
+            public void deleted(Entity entity) {
+                deleted.add(entity);
+            }
+        };
+        Neo4jDAO neo4jDAO = (Neo4jDAO) dao;
+        neo4jDAO.addListener(listener);
+        try {
+            dao.deleteMusiciansAndMusicianInstruments(Lists.newArrayList(keith, jan));
+        } finally {
+            neo4jDAO.removeListener(listener);
+        }
+
+        assertEquals(1, dao.loadAll(Musician.class).size());
+        assertEquals(1, dao.loadAll(MusicianInstrument.class).size());
+        assertEquals(1, dao.loadAll(MusicalInstrument.class).size());
+        assertEquals(4, deleted.size());
+        assertTrue(deleted.contains(keith));
+        assertTrue(deleted.get(0) instanceof MusicianInstrument);
+    }
+
+    @DisplayName("Streaming should return every entity once in id order over several pages")
+    @Test
+    public void streamShouldReturnEveryEntityInIdOrder() {
+        List<Album> albums = Lists.newArrayList(
+                new Album(1975, "ECM 1064/65", "The Koln Concert"),
+                new Album(1973, "ECM 1035/37", "Bremen Lausanne"),
+                new Album(1978, "ECM 1100", "Sun Bear Concerts"),
+                new Album(1977, "ECM 1090", "My Song"),
+                new Album(1971, "ECM 1017", "Facing You"));
+        dao.createOrUpdateAll(albums);
+
+        List<Long> ids = dao.stream(Album.class, 2).map(Album::getId).collect(Collectors.toList());
+
+        List<Long> expected = albums.stream().map(Album::getId).sorted().collect(Collectors.toList());
+        assertEquals(expected, ids);
+        assertEquals(0, dao.stream(Musician.class, 2).count());
+        assertThrows(IllegalArgumentException.class, () -> dao.stream(Album.class, 0));
+    }
+
+    @DisplayName("Streaming should only release the entities it loaded, also when closed before its end")
+    @Test
+    public void streamShouldOnlyReleaseItsOwnEntities() {
+        List<Album> albums = Lists.newArrayList(
+                new Album(1975, "ECM 1064/65", "The Koln Concert"),
+                new Album(1973, "ECM 1035/37", "Bremen Lausanne"),
+                new Album(1978, "ECM 1100", "Sun Bear Concerts"),
+                new Album(1977, "ECM 1090", "My Song"));
+        dao.createOrUpdateAll(albums);
+        session.clear();
+        MappingContext context = ((Neo4jSession) session).context();
+        Album held = dao.load(Album.class, albums.get(1).getId());
+
+        assertEquals(4, dao.stream(Album.class, 3).count());
+
+        assertSame(held, context.getNodeEntity(held.getId()));
+        for (Album album : albums) {
+            if (!album.getId().equals(held.getId())) {
+                assertNull(context.getNodeEntity(album.getId()), album.getAlbumName());
+            }
+        }
 
+        Album first;
+        try (Stream<Album> stream = dao.stream(Album.class, 3)) {
+            first = stream.findFirst().get();
+            assertSame(first, context.getNodeEntity(first.getId()));
+        }
+        assertNull(context.getNodeEntity(first.getId()));
+        assertSame(held, context.getNodeEntity(held.getId()));
+        session.clear();
+    }
 
+    @DisplayName("Projecting should return the numeric properties of every entity in id order")
+    @Test
+    public void projectShouldReturnPropertiesInIdOrder() {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        koln.setPrice(20);
+        Album mySong = new Album(1977, "ECM 1090", "My Song");
+        dao.createOrUpdateAll(Lists.newArrayList(koln, mySong));
+
+        Projection projection = dao.project(Album.class, "releaseYear", "price");
+
+        assertEquals(2, projection.size());
+        int kolnRow = projection.getId(0) == koln.getId() ? 0 : 1;
+        assertTrue(projection.getId(0) < projection.getId(1));
+        assertEquals(1975, projection.getValue("releaseYear", kolnRow));
+        assertEquals(20, projection.getValue("price", kolnRow));
+        assertTrue(projection.isMissing("price", 1 - kolnRow));
+        assertThrows(IllegalArgumentException.class, () -> dao.project(Album.class, "albumName"));
+        assertThrows(IllegalArgumentException.class, () -> dao.project(Album.class, "price) DETACH DELETE (n"));
+    }
 
+    @DisplayName("A fetch plan should load the relationships it names in a new session")
+    @Test
+    public void fetchPlanShouldLoadNamedRelationships() throws IOException {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album mySong = new Album(1977, "ECM 1090", "My Song");
+        Musician keith = new Musician("Keith Jarrett");
+        keith.setAlbums(Sets.newHashSet(koln, mySong));
+        Musician jan = new Musician("Jan Garbarek");
+        dao.createOrUpdate(keith);
+        dao.createOrUpdate(jan);
+        MusicianInstrument keithPiano = new MusicianInstrument(keith,
+                Sets.newHashSet(new MusicalInstrument("Piano"), new MusicalInstrument("Saxophone")));
+        dao.createOrUpdate(keithPiano);
+        session.clear();
 
+        Collection<Musician> musicians = dao.fetchAll(FetchPlan.MUSICIAN_ALBUMS);
 
+        assertEquals(2, musicians.size());
+        for (Musician musician : musicians) {
+            int albums = musician.getAlbums() == null ? 0 : musician.getAlbums().size();
+            assertEquals(musician.getName().equals("Keith Jarrett") ? 2 : 0, albums);
+        }
 
+        session.clear();
+        Collection<MusicianInstrument> musicianInstruments = dao.fetchAll(FetchPlan.MUSICIAN_INSTRUMENTS);
 
+        assertEquals(1, musicianInstruments.size());
+        MusicianInstrument loaded = musicianInstruments.iterator().next();
+        assertEquals("Keith Jarrett", loaded.getMusician().getName());
+        assertEquals(2, loaded.getMusicalInstruments().size());
+    }
 
+    @DisplayName("Name lookups should give the same musicians with and without the name index")
+    @Test
+    public void nameLookupsShouldAgreeWithNameIndex() throws IOException {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Musician keith = new Musician("Keith Jarrett");
+        keith.setAlbums(Sets.newHashSet(koln));
+        dao.createOrUpdate(keith);
+        dao.createOrUpdate(new Musician("Kenny Wheeler"));
+        dao.createOrUpdate(new Musician("Jan Garbarek"));
+        Neo4jDAO neo4jDAO = (Neo4jDAO) dao;
+
+        for (boolean indexed : new boolean[]{false, true}) {
+            if (indexed) {
+                neo4jDAO.enableNameIndex();
+            }
+            try {
+                assertEquals("Keith Jarrett", dao.findMusicianByName("Keith Jarrett").getName());
+                assertNull(dao.findMusicianByName("keith jarrett"));
+                assertEquals(Lists.newArrayList("Keith Jarrett", "Jan Garbarek"), Lists.newArrayList(
+                        dao.findMusiciansByNames(Lists.newArrayList("Keith Jarrett", "Charlie Haden", "Jan Garbarek")).keySet()));
+                assertEquals(1, dao.findMusiciansByNames(Lists.newArrayList("Keith Jarrett")).get("Keith Jarrett").getAlbums().size());
+                assertEquals(Lists.newArrayList("Keith Jarrett"), names(dao.findMusiciansByNameIgnoreCase("KEITH jarrett")));
+                assertEquals(Lists.newArrayList("Keith Jarrett", "Kenny Wheeler"), names(dao.findMusiciansByNamePrefix("ke", 10)));
+                assertEquals(Lists.newArrayList("Keith Jarrett"), names(dao.findMusiciansByNamePrefix("KE", 1)));
+                assertTrue(dao.findMusiciansByNamePrefix("Z", 10).isEmpty());
+                // non-ASCII letters are folded in the root locale with and without the index: the Kelvin sign
+                // folds to k, the dotted capital I to i and a combining dot
+                assertEquals(Lists.newArrayList("Keith Jarrett", "Kenny Wheeler"),
+                        names(dao.findMusiciansByNamePrefix("\u212Ae", 10)));
+                assertTrue(dao.findMusiciansByNameIgnoreCase("KE\u0130TH JARRETT").isEmpty());
+                assertTrue(dao.findMusiciansByNameIgnoreCase("Jan Garbar\u00E9k").isEmpty());
+            } finally {
+                neo4jDAO.disableNameIndex();
+            }
+        }
+    }
 
+    @DisplayName("The name index should follow renamed and deleted musicians")
+    @Test
+    public void nameIndexShouldFollowChanges() throws IOException {
+        Neo4jDAO neo4jDAO = (Neo4jDAO) dao;
+        neo4jDAO.enableNameIndex();
+        try {
+            Musician keith = new Musician("Keith Jarrett");
+            dao.createOrUpdate(keith);
+            Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+            koln.setFeaturedMusicians(Lists.newArrayList(new Musician("Jan Garbarek")));
+            dao.createOrUpdate(koln);
+            assertNotNull(dao.findMusicianByName("Jan Garbarek"));
+
+            keith.setName("Kenny Wheeler");
+            dao.createOrUpdate(keith);
+            assertNull(dao.findMusicianByName("Keith Jarrett"));
+            assertEquals(keith.getId(), dao.findMusicianByName("Kenny Wheeler").getId());
+
+            dao.deleteMusiciansAndMusicianInstruments(Lists.newArrayList(keith));
+            assertNull(dao.findMusicianByName("Kenny Wheeler"));
+            assertTrue(dao.findMusiciansByNamePrefix("k", 10).isEmpty());
+        } finally {
+            neo4jDAO.disableNameIndex();
+        }
+    }
+
+    private static List<String> names(List<Musician> musicians) {
+        return musicians.stream().map(Musician::getName).collect(Collectors.toList());
+    }
+}
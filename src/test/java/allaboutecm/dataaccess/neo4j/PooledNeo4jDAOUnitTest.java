@@ -0,0 +1,114 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PooledNeo4jDAOUnitTest {
+    private SessionFactory sessionFactory;
+    private SessionPool pool;
+    private PooledNeo4jDAO dao;
+
+    @BeforeEach
+    public void setUp() {
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        pool = new SessionPool(sessionFactory, 2, 10000);
+        dao = new PooledNeo4jDAO(pool);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    @DisplayName("Threads sharing the DAO should each use their own session")
+    public void concurrentCallsShouldUseTheirOwnSessions() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> loaded = Lists.newArrayList();
+        try {
+            for (int i = 0; i < 8; i++) {
+                String name = "Album " + (char) ('A' + i);
+                loaded.add(executor.submit(() -> {
+                    dao.createOrUpdate(new Album(1975, "ECM 1064", name));
+                    return dao.loadAll(Album.class).size();
+                }));
+            }
+            for (Future<Integer> count : loaded) {
+                assertTrue(count.get() > 0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(8, dao.loadAll(Album.class).size());
+        assertTrue(pool.getOpened() <= 2);
+        assertEquals(0, pool.getBorrowed());
+        assertEquals(17, pool.getBorrows());
+    }
+
+    @Test
+    @DisplayName("A stream should keep its session until it is consumed")
+    public void streamShouldGiveBackItsSessionWhenConsumed() {
+        dao.createOrUpdateAll(Lists.newArrayList(new Album(1975, "ECM 1064/65", "The Koln Concert"),
+                new Album(1977, "ECM 1090", "My Song"), new Album(1971, "ECM 1017", "Facing You")));
+
+        Iterator<Album> albums = dao.stream(Album.class, 2).iterator();
+        albums.next();
+        assertEquals(1, pool.getBorrowed());
+        albums.next();
+        albums.next();
+
+        assertFalse(albums.hasNext());
+        assertEquals(0, pool.getBorrowed());
+    }
+
+    @Test
+    @DisplayName("Borrowing from a pool with every session borrowed should time out")
+    public void borrowShouldTimeOutWhenEverySessionIsBorrowed() {
+        SessionPool single = new SessionPool(sessionFactory, 1, 50);
+        Session session = single.borrow();
+
+        assertThrows(IllegalStateException.class, single::borrow);
+        assertEquals(1, single.getWaits());
+        assertEquals(1, single.getTimeouts());
+
+        single.release(session);
+        assertSame(session, single.borrow());
+        assertEquals(1, single.getOpened());
+    }
+
+    @Test
+    @DisplayName("A session that failed to open should not be counted as opened")
+    public void failedOpenShouldNotTakeAPlaceInThePool() {
+        SessionFactory failing = mock(SessionFactory.class);
+        Session session = mock(Session.class);
+        when(failing.openSession()).thenThrow(new IllegalStateException("Store unavailable")).thenReturn(session);
+        SessionPool single = new SessionPool(failing, 1, 50);
+
+        assertThrows(IllegalStateException.class, single::borrow);
+        assertEquals(0, single.getOpened());
+
+        assertSame(session, single.borrow());
+        assertEquals(1, single.getOpened());
+        assertEquals(0, single.getTimeouts());
+    }
+}
@@ -0,0 +1,92 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.MusicalInstrument;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianInstrument;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaManagerUnitTest {
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    public void setUp() {
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    @DisplayName("The natural keys of the entities should be declared as indexes and constraints")
+    public void naturalKeysShouldBeDeclared() {
+        SchemaManager schemaManager = new SchemaManager(sessionFactory.openSession(),
+                Lists.newArrayList(Album.class, Musician.class, MusicalInstrument.class, MusicianInstrument.class));
+
+        List<String> declared = Lists.newArrayList();
+        for (IndexStatus index : schemaManager.getDeclared()) {
+            declared.add((index.isUnique() ? "unique " : "") + index.getLabel() + index.getProperties());
+        }
+
+        assertEquals(Lists.newArrayList("Album[albumName, recordNumber, releaseYear]", "unique Musician[name]",
+                "unique MusicalInstrument[name]"), declared);
+    }
+
+    @Test
+    @DisplayName("Bootstrap should build every index and can be run again")
+    public void bootstrapShouldBuildEveryIndex() {
+        List<IndexStatus> statuses = SchemaManager.bootstrap(sessionFactory);
+        List<IndexStatus> again = SchemaManager.bootstrap(sessionFactory);
+
+        assertEquals(3, statuses.size());
+        for (IndexStatus status : statuses) {
+            assertTrue(status.isOnline(), status.toString());
+        }
+        assertEquals(statuses.toString(), again.toString());
+    }
+
+    @Test
+    @DisplayName("Indexes missing from the store should be reported as missing")
+    public void missingIndexesShouldBeReported() {
+        SchemaManager schemaManager = new SchemaManager(sessionFactory.openSession(),
+                Lists.newArrayList(Musician.class));
+
+        List<IndexStatus> statuses = schemaManager.status();
+
+        assertEquals(1, statuses.size());
+        assertEquals(IndexStatus.State.MISSING, statuses.get(0).getState());
+    }
+
+    @Test
+    @DisplayName("Saves cascading to existing natural keys should reuse their nodes under the constraints")
+    public void cascadedNaturalKeysShouldReuseNodes() throws IOException {
+        SchemaManager.bootstrap(sessionFactory);
+        Neo4jDAO dao = new Neo4jDAO(sessionFactory.openSession());
+        dao.createOrUpdate(new MusicalInstrument("Piano"));
+        dao.createOrUpdate(new Musician("Keith Jarrett"));
+
+        dao.createOrUpdate(new MusicianInstrument(new Musician("Keith Jarrett"),
+                Sets.newHashSet(new MusicalInstrument("Piano"))));
+        Album album = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        album.setFeaturedMusicians(Lists.newArrayList(new Musician("Keith Jarrett")));
+        dao.createOrUpdateAll(Lists.newArrayList(album));
+
+        assertEquals(1, dao.loadAll(MusicalInstrument.class).size());
+        assertEquals(1, dao.loadAll(Musician.class).size());
+    }
+}
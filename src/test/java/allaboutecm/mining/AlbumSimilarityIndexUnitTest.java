@@ -0,0 +1,106 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlbumSimilarityIndexUnitTest {
+    private Album target;
+    private Album twoShared;
+    private Album oneSharedSmall;
+    private Album oneSharedBig;
+    private Album noneShared;
+    private List<Album> albums;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician jan = new Musician("Jan Garbarek");
+        Musician charlie = new Musician("Charlie Haden");
+        Musician paul = new Musician("Paul Motian");
+        Musician palle = new Musician("Palle Danielsson");
+        Musician jon = new Musician("Jon Christensen");
+
+        target = new Album(1974, "ECM 1050", "Belonging");
+        twoShared = new Album(1977, "ECM 1090", "My Song");
+        oneSharedSmall = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        oneSharedBig = new Album(1980, "ECM 1170", "Nude Ants");
+        noneShared = new Album(1976, "ECM 1080", "Arbour Zena");
+
+        target.setFeaturedMusicians(Lists.newArrayList(keith, jan, palle, jon));
+        twoShared.setFeaturedMusicians(Lists.newArrayList(keith, jan, palle, jon, charlie, paul));
+        oneSharedSmall.setFeaturedMusicians(Lists.newArrayList(keith));
+        oneSharedBig.setFeaturedMusicians(Lists.newArrayList(jan, charlie, paul));
+        noneShared.setFeaturedMusicians(Lists.newArrayList(charlie));
+
+        albums = Lists.newArrayList(target, oneSharedBig, oneSharedSmall, twoShared, noneShared);
+    }
+
+    @Test
+    @DisplayName("Overlap should rank albums by the number of shared musicians")
+    public void overlapShouldRankBySharedMusicians() {
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.build(albums);
+
+        List<Album> result = index.mostSimilar(target, 5, AlbumSimilarity.OVERLAP);
+
+        assertEquals(Lists.newArrayList(twoShared, oneSharedBig, oneSharedSmall), result);
+    }
+
+    @Test
+    @DisplayName("Jaccard should prefer small albums over big albums with the same overlap")
+    public void jaccardShouldNormaliseByLineupSize() {
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.build(albums);
+
+        List<Album> result = index.mostSimilar(target, 5, AlbumSimilarity.JACCARD);
+
+        assertEquals(Lists.newArrayList(twoShared, oneSharedSmall, oneSharedBig), result);
+    }
+
+    @Test
+    @DisplayName("Exact index should not accept MinHash similarity")
+    public void exactIndexShouldRejectMinHash() {
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.build(albums);
+
+        assertThrows(IllegalArgumentException.class, () -> index.mostSimilar(target, 5, AlbumSimilarity.MINHASH));
+    }
+
+    @Test
+    @DisplayName("MinHash should find the same albums as Jaccard when signatures are long enough")
+    public void minHashShouldFindTheSameAlbumsAsJaccard() {
+        MusicianAlbumIndex musicianAlbumIndex = MusicianAlbumIndex.build(albums);
+        MinHashAlbumIndex minHash = MinHashAlbumIndex.build(musicianAlbumIndex, 64, 1);
+
+        List<Album> expected = new AlbumSimilarityIndex(musicianAlbumIndex).mostSimilar(target, 5, AlbumSimilarity.JACCARD);
+
+        assertEquals(expected, minHash.mostSimilar(target, 5));
+    }
+
+    @Test
+    @DisplayName("MinHash should never return the album itself or an album sharing no musician")
+    public void minHashShouldOnlyReturnAlbumsSharingMusicians() {
+        MinHashAlbumIndex minHash = MinHashAlbumIndex.build(albums);
+
+        List<Album> result = minHash.mostSimilar(target, 5);
+
+        assertFalse(result.contains(target));
+        assertFalse(result.contains(noneShared));
+        assertTrue(result.contains(twoShared));
+    }
+
+    @Test
+    @DisplayName("Number of bands and rows should be more than 0")
+    public void bandsAndRowsShouldBeMoreThanZero() {
+        MusicianAlbumIndex musicianAlbumIndex = MusicianAlbumIndex.build(albums);
+
+        assertThrows(IllegalArgumentException.class, () -> MinHashAlbumIndex.build(musicianAlbumIndex, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> MinHashAlbumIndex.build(musicianAlbumIndex, 2, 0));
+    }
+}
@@ -0,0 +1,78 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlbumTextIndexUnitTest {
+    private Album koln;
+    private Album bremen;
+    private Album sunBear;
+    private Album mySong;
+    private List<Album> albums;
+
+    @BeforeEach
+    public void setUp() {
+        koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        bremen = new Album(1973, "ECM 1035/37", "Bremen Lausanne Concert");
+        sunBear = new Album(1978, "ECM 1100", "Sun Bear Concerts");
+        mySong = new Album(1977, "ECM 1090", "My Song");
+
+        koln.setTracks(Lists.newArrayList("Part I", "Part II"));
+        bremen.setTracks(Lists.newArrayList("Part I", "Part II"));
+        mySong.setTracks(Lists.newArrayList("Questar", "Country", "Mandala"));
+
+        albums = Lists.newArrayList(koln, bremen, sunBear, mySong);
+    }
+
+    @Test
+    @DisplayName("Words should be padded and cut into lower case n-grams")
+    public void shouldCutWordsIntoNGrams() {
+        assertEquals(Lists.newArrayList(" my", "my ", " so", "son", "ong", "ng "), AlbumTextIndex.grams("My, Song!", 3));
+        assertEquals(Lists.newArrayList(" i "), AlbumTextIndex.grams("I", 3));
+        assertTrue(AlbumTextIndex.grams("  ", 3).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Albums with the same tracks and a shared word should be the most similar")
+    public void shouldRankAlbumsSharingNamesAndTracksFirst() {
+        AlbumTextIndex index = AlbumTextIndex.build(albums);
+
+        List<Album> result = index.mostSimilar(koln, 3);
+
+        assertEquals(bremen, result.get(0));
+        assertEquals(sunBear, result.get(1));
+        assertFalse(result.contains(koln));
+    }
+
+    @Test
+    @DisplayName("Search should match partial words")
+    public void searchShouldMatchPartialWords() {
+        AlbumTextIndex index = AlbumTextIndex.build(albums);
+
+        List<Album> result = index.search("concerto", 1);
+
+        assertEquals(1, result.size());
+        assertNotEquals(mySong, result.get(0));
+    }
+
+    @Test
+    @DisplayName("Albums sharing no n-gram should not be returned")
+    public void unrelatedAlbumsShouldNotBeReturned() {
+        AlbumTextIndex index = AlbumTextIndex.build(albums);
+
+        assertTrue(index.search("xyz", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("n-gram length should be more than 0")
+    public void gramShouldBeMoreThanZero() {
+        assertThrows(IllegalArgumentException.class, () -> AlbumTextIndex.build(albums, 0));
+    }
+}
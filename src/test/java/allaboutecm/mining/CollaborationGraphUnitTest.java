@@ -0,0 +1,82 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollaborationGraphUnitTest {
+    private Musician keith;
+    private Musician jan;
+    private Musician charlie;
+    private Musician paul;
+    private CollaborationGraph graph;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        keith = new Musician("Keith Jarrett");
+        jan = new Musician("Jan Garbarek");
+        charlie = new Musician("Charlie Haden");
+        paul = new Musician("Paul Motian");
+
+        Album album1 = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album album2 = new Album(1977, "ECM 1090", "My Song");
+        Album album3 = new Album(1980, "ECM 1170", "Nude Ants");
+        album1.setFeaturedMusicians(Lists.newArrayList(keith));
+        album2.setFeaturedMusicians(Lists.newArrayList(keith, jan, charlie));
+        album3.setFeaturedMusicians(Lists.newArrayList(keith, jan, paul));
+
+        graph = CollaborationGraph.build(Lists.newArrayList(album1, album2, album3));
+    }
+
+    @Test
+    @DisplayName("Degree should be the number of distinct collaborators")
+    public void degreeShouldBeTheNumberOfCollaborators() {
+        assertEquals(4, graph.musicianCount());
+        assertEquals(3, graph.degree(graph.idOf(keith)));
+        assertEquals(3, graph.degree(graph.idOf(jan)));
+        assertEquals(2, graph.degree(graph.idOf(charlie)));
+        assertEquals(2, graph.degree(graph.idOf(paul)));
+        assertEquals(5, graph.edgeCount());
+    }
+
+    @Test
+    @DisplayName("Edge weight should be the number of shared albums, in both directions")
+    public void weightShouldBeTheNumberOfSharedAlbums() {
+        assertEquals(2, graph.weight(graph.idOf(keith), graph.idOf(jan)));
+        assertEquals(2, graph.weight(graph.idOf(jan), graph.idOf(keith)));
+        assertEquals(1, graph.weight(graph.idOf(jan), graph.idOf(paul)));
+        assertEquals(0, graph.weight(graph.idOf(charlie), graph.idOf(paul)));
+    }
+
+    @Test
+    @DisplayName("Neighbours should be iterated in id order with their weights")
+    public void shouldIterateNeighboursInIdOrder() {
+        int id = graph.idOf(keith);
+        List<Integer> visited = Lists.newArrayList();
+        graph.forEachNeighbour(id, (neighbour, sharedAlbums) -> {
+            visited.add(neighbour);
+            visited.add(sharedAlbums);
+        });
+
+        assertEquals(Lists.newArrayList(1, 2, 2, 1, 3, 1), visited);
+        assertEquals(graph.idOf(charlie), graph.neighbour(id, 1));
+        assertEquals(1, graph.sharedAlbums(id, 1));
+        assertEquals(jan, graph.getMusician(graph.neighbour(id, 0)));
+    }
+
+    @Test
+    @DisplayName("Asking for a neighbour that does not exist should throw")
+    public void missingNeighbourShouldThrow() {
+        int id = graph.idOf(paul);
+        assertThrows(IndexOutOfBoundsException.class, () -> graph.neighbour(id, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> graph.sharedAlbums(id, -1));
+    }
+}
@@ -55,10 +55,20 @@ class ECMMinerIntegrationTest {
         sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
         session = sessionFactory.openSession();
 
-        dao = new Neo4jDAO(session);
+        dao = createDAO(session);
         ecmMiner = new ECMMiner(dao);
     }
 
+    // the backend the scenarios run against
+    DAO createDAO(Session session) {
+        return new Neo4jDAO(session);
+    }
+
+    // the same store seen from a new session, which holds none of the entities saved so far
+    DAO reopen(DAO dao) {
+        return createDAO(sessionFactory.openSession());
+    }
+
     @AfterEach
     public void tearDownEach() {
         session.purgeDatabase();
@@ -1174,4 +1184,205 @@ class ECMMinerIntegrationTest {
 
 
 
+    @DisplayName("Pushed down mostProlificMusicians should return the same musicians as the in-memory one")
+    @Test
+    public void pushdownMostProlificMusiciansShouldMatchInMemoryResult() throws IOException {
+        Album album1 = new Album(1976, "ECM 1064/61", "The Koln Concert");
+        Album album2 = new Album(2020, "ECM 1064/2617", "RIVAGES");
+        Album album3 = new Album(2019, "ECM 1064/2645", "Characters on a Wall");
+        Album album4 = new Album(2007, "ECM 1998/99", "RE PASOLINI");
+        Album album5 = new Album(2017, "RJAL 397030", "Bands Originals");
+
+        Musician musician1 = new Musician("Keith Jarrett");
+        Musician musician2 = new Musician("Avishai Cohen");
+        Musician musician3 = new Musician("Vincent Courtois");
+        Musician musician4 = new Musician("Anja Lechner");
+
+        musician1.setAlbums(Sets.newHashSet(album1, album2));
+        musician2.setAlbums(Sets.newHashSet(album3, album4, album5));
+        musician3.setAlbums(Sets.newHashSet(album5));
+        musician4.setAlbums(Sets.newHashSet(album4, album3));
+
+        dao.createOrUpdate(musician1);
+        dao.createOrUpdate(musician2);
+        dao.createOrUpdate(musician3);
+        dao.createOrUpdate(musician4);
+
+        List<Musician> inMemory = ecmMiner.mostProlificMusicians(3, -1, -1);
+        ecmMiner.setPushdown(true);
+        List<Musician> pushedDown = ecmMiner.mostProlificMusicians(3, -1, -1);
+
+        assertEquals(Lists.newArrayList(musician2, musician4, musician1), pushedDown);
+        assertEquals(inMemory, pushedDown);
+    }
+
+    @DisplayName("Pushed down mostProlificMusicians should only count albums between start year and end year")
+    @Test
+    public void pushdownMostProlificMusiciansShouldFilterByYear() throws IOException {
+        Album album1 = new Album(1976, "ECM 1064/61", "The Koln Concert");
+        Album album2 = new Album(1977, "ECM 1064/62", "Staircase");
+        Album album3 = new Album(2019, "ECM 1064/2645", "Characters on a Wall");
+
+        Musician musician1 = new Musician("Keith Jarrett");
+        Musician musician2 = new Musician("Avishai Cohen");
+        musician1.setAlbums(Sets.newHashSet(album1, album2));
+        musician2.setAlbums(Sets.newHashSet(album3));
+
+        dao.createOrUpdate(musician1);
+        dao.createOrUpdate(musician2);
+
+        ecmMiner.setPushdown(true);
+        assertEquals(Lists.newArrayList(musician2), ecmMiner.mostProlificMusicians(5, 2000, 2020));
+        assertEquals(0, ecmMiner.mostProlificMusicians(5, 1980, 1990).size());
+    }
+
+
+    @Test
+    @DisplayName("busiestYears counted by the store should return the same years")
+    public void pushdownBusiestYearsShouldMatchInMemoryResult() {
+        Album album1 = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album album2 = new Album(2017, "ECM 12344", "Great");
+        Album album3 = new Album(2017, "ECM 13456", "Good");
+        Album album4 = new Album(2003, "ECM 2347432", "The Moon");
+        Album album5 = new Album(2003, "ECM 2347433", "The Sun");
+        dao.createOrUpdate(album1);
+        dao.createOrUpdate(album2);
+        dao.createOrUpdate(album3);
+        dao.createOrUpdate(album4);
+        dao.createOrUpdate(album5);
+
+        List<Integer> inMemory = ecmMiner.busiestYears(3);
+        ecmMiner.setPushdown(true);
+        List<Integer> pushedDown = ecmMiner.busiestYears(3);
+
+        assertEquals(Lists.newArrayList(2003, 2017, 1975), pushedDown);
+        assertEquals(inMemory, pushedDown);
+    }
+
+
+
+    @Test
+    @DisplayName("Rankings maintained from the DAO should follow saves and deletes")
+    public void maintainedRankingsShouldFollowDAOChanges() throws IOException {
+        Neo4jDAO neo4jDAO = (Neo4jDAO) dao;
+        MaintainedRankings rankings = new MaintainedRankings();
+        rankings.reload(neo4jDAO);
+        neo4jDAO.addListener(rankings);
+
+        Album album1 = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album album2 = new Album(2017, "ECM 12344", "Great");
+        Musician musician1 = new Musician("Keith Jarrett");
+        musician1.setAlbums(Sets.newHashSet(album1, album2));
+        Musician musician2 = new Musician("Jan Garbarek");
+        musician2.setAlbums(Sets.newHashSet(album2));
+        neo4jDAO.createOrUpdate(musician1);
+        neo4jDAO.createOrUpdate(musician2);
+
+        assertEquals(ecmMiner.mostProlificMusicians(2, -1, -1), rankings.mostProlificMusicians(2));
+        assertEquals(ecmMiner.busiestYears(2), rankings.busiestYears(2));
+
+        neo4jDAO.delete(album2);
+
+        assertEquals(Lists.newArrayList(musician1), rankings.mostProlificMusicians(2));
+        assertEquals(Lists.newArrayList(1975), rankings.busiestYears(2));
+        neo4jDAO.removeListener(rankings);
+    }
+
+    @Test
+    @DisplayName("Rankings reloaded through a new session should count the relationships in the store")
+    public void maintainedRankingsReloadedThroughNewSessionShouldCountRelationships() throws IOException {
+        Album album1 = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album album2 = new Album(2017, "ECM 12344", "Great");
+        Musician musician1 = new Musician("Keith Jarrett");
+        musician1.setAlbums(Sets.newHashSet(album1, album2));
+        Musician musician2 = new Musician("Jan Garbarek");
+        musician2.setAlbums(Sets.newHashSet(album2));
+        MusicalInstrument piano = new MusicalInstrument("Piano");
+        MusicalInstrument saxophone = new MusicalInstrument("Saxophone");
+        MusicalInstrument flute = new MusicalInstrument("Flute");
+        dao.createOrUpdate(musician1);
+        dao.createOrUpdate(musician2);
+        dao.createOrUpdate(new MusicianInstrument(musician1, Sets.newHashSet(piano)));
+        dao.createOrUpdate(new MusicianInstrument(musician2, Sets.newHashSet(saxophone, flute)));
+
+        MaintainedRankings rankings = new MaintainedRankings();
+        rankings.reload(reopen(dao));
+
+        assertEquals(Lists.newArrayList(musician1, musician2), rankings.mostProlificMusicians(2));
+        assertEquals(Lists.newArrayList(musician2, musician1), rankings.mostTalentedMusicians(2));
+        assertEquals(Lists.newArrayList(1975, 2017), rankings.busiestYears(2));
+    }
+
+    @Test
+    @DisplayName("Similar albums should include an album saved after an earlier query")
+    public void similarAlbumsShouldFollowSaves() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        koln.setFeaturedMusicians(Lists.newArrayList(keith));
+        Album facingYou = new Album(1971, "ECM 1017", "Facing You");
+        facingYou.setFeaturedMusicians(Lists.newArrayList(new Musician("Jan Garbarek")));
+        dao.createOrUpdate(koln);
+        dao.createOrUpdate(facingYou);
+        assertTrue(ecmMiner.mostSimilarAlbums(3, koln).isEmpty());
+
+        Album sunBear = new Album(1978, "ECM 1100", "Sun Bear Concerts");
+        sunBear.setFeaturedMusicians(Lists.newArrayList(keith));
+        dao.createOrUpdate(sunBear);
+
+        assertEquals(Lists.newArrayList(sunBear), ecmMiner.mostSimilarAlbums(3, koln));
+    }
+
+    @Test
+    @DisplayName("Album scans read page by page should give the same results as loading all albums")
+    public void pagedAlbumScansShouldMatchLoadingAllAlbums() {
+        Album album1 = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        album1.setPrice(30);
+        Album album2 = new Album(2017, "ECM 12344", "Great");
+        album2.setPrice(10);
+        Album album3 = new Album(1975, "ECM 1100", "Sun Bear Concerts");
+        album3.setPrice(50);
+        Album album4 = new Album(2003, "ECM 1090", "My Song");
+        album4.setPrice(20);
+        Album album5 = new Album(2017, "ECM 1017", "Facing You");
+        album5.setPrice(40);
+        dao.createOrUpdateAll(Lists.newArrayList(album1, album2, album3, album4, album5));
+
+        List<Integer> loadedYears = ecmMiner.busiestYears(3);
+        List<Album> loadedAlbums = ecmMiner.mostExpensiveAlbums(3);
+        ecmMiner.setPageSize(2);
+
+        assertEquals(loadedYears, ecmMiner.busiestYears(3));
+        assertEquals(loadedAlbums, ecmMiner.mostExpensiveAlbums(3));
+        assertEquals(Lists.newArrayList(album3, album5, album1), ecmMiner.mostExpensiveAlbums(3));
+    }
+
+    @Test
+    @DisplayName("Fetch plans should give the relationship based rankings without the session holding the graph")
+    public void fetchPlansShouldLoadRelationshipsForRankings() throws IOException {
+        Album album1 = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album album2 = new Album(2017, "ECM 12344", "Great");
+        Musician musician1 = new Musician("Keith Jarrett");
+        musician1.setAlbums(Sets.newHashSet(album1, album2));
+        Musician musician2 = new Musician("Jan Garbarek");
+        musician2.setAlbums(Sets.newHashSet(album2));
+        Musician musician3 = new Musician("Charlie Haden");
+        album1.setFeaturedMusicians(Lists.newArrayList(musician1, musician3));
+        album2.setFeaturedMusicians(Lists.newArrayList(musician1, musician2, musician3));
+        dao.createOrUpdate(musician1);
+        dao.createOrUpdate(musician2);
+        dao.createOrUpdate(musician3);
+        dao.createOrUpdate(album1);
+        dao.createOrUpdate(album2);
+        session.clear();
+
+        ecmMiner.setFetchPlans(true);
+        List<Musician> prolific = ecmMiner.mostProlificMusicians(2, -1, -1);
+        session.clear();
+        List<Musician> social = ecmMiner.mostSocialMusicians(1);
+
+        assertEquals(Lists.newArrayList(musician1, musician2), prolific);
+        assertEquals(1, social.size());
+        assertTrue(Lists.newArrayList(musician1, musician3).contains(social.get(0)));
+    }
+
 }
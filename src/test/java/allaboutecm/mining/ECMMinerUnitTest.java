@@ -1,12 +1,14 @@
 package allaboutecm.mining;
 
 import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.Projection;
 import allaboutecm.dataaccess.neo4j.Neo4jDAO;
 import allaboutecm.model.Album;
 import allaboutecm.model.MusicalInstrument;
 import allaboutecm.model.Musician;
 import allaboutecm.model.MusicianInstrument;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,7 +20,9 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.mockito.Mockito.*;
 
@@ -789,6 +793,42 @@ class ECMMinerUnitTest {
         assertEquals(0,result.size());
     }
 
+    @Test
+    @DisplayName("Similarity queries should reuse one index until the catalog changes")
+    public void similarityQueriesShouldReuseIndex() throws IOException {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician jan = new Musician("Jan Garbarek");
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        koln.setFeaturedMusicians(Lists.newArrayList(keith));
+        Album mySong = new Album(1977, "ECM 1090", "My Song");
+        mySong.setFeaturedMusicians(Lists.newArrayList(keith, jan));
+        Album belonging = new Album(1974, "ECM 1050", "Belonging");
+        belonging.setFeaturedMusicians(Lists.newArrayList(jan));
+        when(dao.loadAll(Album.class)).thenReturn(Lists.newArrayList(koln, mySong, belonging));
+
+        // not cached by default, every query reads the catalog
+        assertEquals(Lists.newArrayList(mySong), ecmMiner.mostSimilarAlbums(3, koln, AlbumSimilarity.OVERLAP));
+        assertEquals(Lists.newArrayList(mySong), ecmMiner.mostSimilarAlbums(3, koln, AlbumSimilarity.OVERLAP));
+        verify(dao, times(2)).loadAll(Album.class);
+        reset(dao);
+        when(dao.loadAll(Album.class)).thenReturn(Lists.newArrayList(koln, mySong, belonging));
+
+        ecmMiner.setCachedSimilarity(true);
+        assertEquals(Lists.newArrayList(mySong), ecmMiner.mostSimilarAlbums(3, koln, AlbumSimilarity.OVERLAP));
+        assertEquals(Lists.newArrayList(mySong), ecmMiner.mostSimilarAlbums(3, belonging, AlbumSimilarity.MINHASH));
+        assertEquals(Lists.newArrayList(koln, belonging), ecmMiner.mostSimilarAlbums(3, mySong, AlbumSimilarity.OVERLAP));
+        verify(dao, times(1)).loadAll(Album.class);
+
+        Album kolnLive = new Album(1976, "ECM 1100", "The Koln Concert Live");
+        assertEquals(koln, ecmMiner.mostSimilarAlbums(1, kolnLive, AlbumSimilarity.NAMES).get(0));
+        assertEquals(koln, ecmMiner.mostSimilarAlbums(1, kolnLive, AlbumSimilarity.NAMES).get(0));
+        verify(dao, times(2)).loadAll(Album.class);
+
+        ecmMiner.getSimilarityIndexes().saved(koln);
+        ecmMiner.mostSimilarAlbums(3, koln, AlbumSimilarity.MINHASH);
+        verify(dao, times(3)).loadAll(Album.class);
+    }
+
     /*
     ---------     Method 6 (mostExpensiveAlbums)  ----------
     ---------          Extra Credit 1            -----------
@@ -1236,4 +1276,191 @@ class ECMMinerUnitTest {
 
 
 
+    @DisplayName("mostProlificMusicians should ask the DAO to rank musicians when pushdown is enabled")
+    @Test
+    public void mostProlificMusiciansShouldDelegateToDaoWhenPushdownIsEnabled() throws IOException {
+        Musician musician = new Musician("Keith Jarrett");
+        when(dao.findMostProlificMusicians(3, 1999, 2020)).thenReturn(Lists.newArrayList(musician));
+
+        ecmMiner.setPushdown(true);
+        List<Musician> result = ecmMiner.mostProlificMusicians(3, 1999, 2020);
+
+        assertEquals(Lists.newArrayList(musician), result);
+        verify(dao, never()).loadAll(Musician.class);
+    }
+
+    /*
+           ---------     Parallel mode  ----------
+     */
+    private List<Album> albumsWithTies() throws IOException {
+        List<Musician> musicians = Lists.newArrayList();
+        for (int i = 0; i < 12; i++) {
+            musicians.add(new Musician("Musician " + (char) ('A' + i)));
+        }
+        List<Album> albums = Lists.newArrayList();
+        for (int i = 0; i < 60; i++) {
+            Album album = new Album(1971 + i % 7, "ECM " + (1000 + i), "Album " + (char) ('A' + i / 26) + (char) ('a' + i % 26));
+            album.setPrice(i % 5);
+            album.setSales(i % 3);
+            if (i % 4 != 0) {
+                album.setRating(i % 2);
+            }
+            album.setFeaturedMusicians(Lists.newArrayList(musicians.get(i % 12), musicians.get((i * 5) % 12)));
+            albums.add(album);
+        }
+        for (int i = 0; i < musicians.size(); i++) {
+            Set<Album> featured = Sets.newHashSet();
+            for (int j = i % 4; j < albums.size(); j += 4 + i % 3) {
+                featured.add(albums.get(j));
+            }
+            musicians.get(i).setAlbums(featured);
+        }
+        return albums;
+    }
+
+    @DisplayName("Parallel mode should return the same results in the same order as the sequential mode")
+    @Test
+    public void parallelModeShouldMatchSequentialMode() throws IOException {
+        List<Album> albums = albumsWithTies();
+        List<Musician> musicians = Lists.newArrayList();
+        List<MusicianInstrument> musicianInstruments = Lists.newArrayList();
+        for (Album album : albums.subList(0, 12)) {
+            Musician musician = album.getFeaturedMusicians().get(0);
+            musicians.add(musician);
+            musicianInstruments.add(new MusicianInstrument(musician, Sets.newHashSet(
+                    new MusicalInstrument("Piano"), new MusicalInstrument("Drums" + (char) ('A' + musicians.size() % 3)))));
+        }
+        when(dao.loadAll(Album.class)).thenReturn(albums);
+        when(dao.loadAll(Musician.class)).thenReturn(musicians);
+        when(dao.loadAll(MusicianInstrument.class)).thenReturn(musicianInstruments);
+
+        ECMMiner parallel = new ECMMiner(dao);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        parallel.setPool(pool);
+        parallel.setMinRange(1);
+        try {
+            assertEquals(ecmMiner.mostProlificMusicians(5, -1, -1), parallel.mostProlificMusicians(5, -1, -1));
+            assertEquals(ecmMiner.mostTalentedMusicians(5), parallel.mostTalentedMusicians(5));
+            assertEquals(ecmMiner.mostSocialMusicians(5), parallel.mostSocialMusicians(5));
+            assertEquals(ecmMiner.busiestYears(4), parallel.busiestYears(4));
+            assertEquals(ecmMiner.mostExpensiveAlbums(15), parallel.mostExpensiveAlbums(15));
+            assertEquals(ecmMiner.highestRatedAlbums(15), parallel.highestRatedAlbums(15));
+            assertEquals(ecmMiner.bestSellerAlbum(15), parallel.bestSellerAlbum(15));
+            assertEquals(ecmMiner.highestRatingAlbum(15), parallel.highestRatingAlbum(15));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /*
+           ---------     Reports computed together  ----------
+     */
+    @DisplayName("Reports computed together should match the single report methods and load the albums once")
+    @Test
+    public void reportsShouldMatchSingleMethodsWithOneAlbumLoad() throws IOException {
+        List<Album> albums = albumsWithTies();
+        List<Musician> musicians = Lists.newArrayList();
+        for (Album album : albums.subList(0, 12)) {
+            musicians.add(album.getFeaturedMusicians().get(0));
+        }
+        when(dao.loadAll(Album.class)).thenReturn(albums);
+        when(dao.loadAll(Musician.class)).thenReturn(musicians);
+        Map<Report, Integer> requested = Maps.newEnumMap(Report.class);
+        requested.put(Report.BUSIEST_YEARS, 3);
+        requested.put(Report.MOST_EXPENSIVE_ALBUMS, 10);
+        requested.put(Report.HIGHEST_RATED_ALBUMS, 10);
+        requested.put(Report.BEST_SELLER_ALBUMS, 10);
+        requested.put(Report.MOST_PROLIFIC_MUSICIANS, 4);
+
+        CatalogReport report = ecmMiner.reports(requested);
+
+        verify(dao, times(1)).loadAll(Album.class);
+        verify(dao, times(1)).loadAll(Musician.class);
+        assertEquals(ecmMiner.busiestYears(3), report.getBusiestYears());
+        assertEquals(ecmMiner.mostExpensiveAlbums(10), report.getMostExpensiveAlbums());
+        assertEquals(ecmMiner.highestRatedAlbums(10), report.getHighestRatedAlbums());
+        assertEquals(ecmMiner.bestSellerAlbum(10), report.getBestSellerAlbums());
+        assertEquals(ecmMiner.mostProlificMusicians(4, -1, -1), report.getMostProlificMusicians());
+    }
+
+    @DisplayName("Reports that are not requested should be empty and need no loading")
+    @Test
+    public void reportsNotRequestedShouldBeEmpty() {
+        Map<Report, Integer> requested = Maps.newEnumMap(Report.class);
+
+        CatalogReport report = ecmMiner.reports(requested);
+
+        verify(dao, never()).loadAll(any());
+        assertTrue(report.getBusiestYears().isEmpty());
+        assertTrue(report.getBestSellerAlbums().isEmpty());
+        assertTrue(report.getMostProlificMusicians().isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-5, 0})
+    @DisplayName("Every requested report should return more than 0 elements")
+    public void reportsShouldRejectNonPositiveK(int k) {
+        Map<Report, Integer> requested = Maps.newEnumMap(Report.class);
+        requested.put(Report.BEST_SELLER_ALBUMS, k);
+
+        assertThrows(IllegalArgumentException.class, () -> ecmMiner.reports(requested));
+    }
+
+    /*
+           ---------     Projections  ----------
+     */
+    @DisplayName("Projected rankings should only load the albums they return")
+    @Test
+    public void projectedRankingsShouldOnlyLoadReturnedAlbums() {
+        Album koln = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album mySong = new Album(1977, "ECM 1090", "My Song");
+        Map<String, double[]> prices = Maps.newHashMap();
+        prices.put("price", new double[]{20, Double.NaN, 35, 10});
+        when(dao.project(Album.class, "price")).thenReturn(new Projection(new long[]{1, 2, 3, 4}, prices));
+        when(dao.load(Album.class, 3L)).thenReturn(mySong);
+        when(dao.load(Album.class, 1L)).thenReturn(koln);
+
+        ecmMiner.setProjection(true);
+        List<Album> albums = ecmMiner.mostExpensiveAlbums(2);
+
+        assertEquals(Lists.newArrayList(mySong, koln), albums);
+        verify(dao, never()).loadAll(Album.class);
+        verify(dao, times(2)).load(eq(Album.class), anyLong());
+    }
+
+    @DisplayName("Projected busiest years should count the projected release years")
+    @Test
+    public void projectedBusiestYearsShouldCountReleaseYears() {
+        Map<String, double[]> years = Maps.newHashMap();
+        years.put("releaseYear", new double[]{1975, 1977, 1975, 2003, 1977, 1975});
+        when(dao.project(Album.class, "releaseYear"))
+                .thenReturn(new Projection(new long[]{1, 2, 3, 4, 5, 6}, years));
+
+        ecmMiner.setProjection(true);
+
+        assertEquals(Lists.newArrayList(1975, 1977), ecmMiner.busiestYears(2));
+        verify(dao, never()).loadAll(Album.class);
+    }
+
+    @DisplayName("Busiest years should skip missing and out of range release years")
+    @Test
+    public void busiestYearsShouldSkipInvalidReleaseYears() {
+        Map<String, double[]> years = Maps.newHashMap();
+        years.put("releaseYear", new double[]{1975, Double.NaN, 0, 1975, 3000, 1977});
+        when(dao.project(Album.class, "releaseYear"))
+                .thenReturn(new Projection(new long[]{1, 2, 3, 4, 5, 6}, years));
+        Map<Integer, Integer> counts = Maps.newHashMap();
+        counts.put(1975, 2);
+        counts.put(0, 5);
+        counts.put(1977, 1);
+        when(dao.countAlbumsByReleaseYear()).thenReturn(counts);
+
+        ecmMiner.setProjection(true);
+        assertEquals(Lists.newArrayList(1975, 1977), ecmMiner.busiestYears(5));
+
+        ecmMiner.setProjection(false);
+        ecmMiner.setPushdown(true);
+        assertEquals(Lists.newArrayList(1975, 1977), ecmMiner.busiestYears(5));
+    }
+
 }
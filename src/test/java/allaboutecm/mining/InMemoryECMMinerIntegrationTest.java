@@ -0,0 +1,62 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.memory.InMemoryDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.session.Session;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the scenarios of {@link ECMMinerIntegrationTest} against {@link InMemoryDAO}, which should give the same
+ * results as the Neo4j store.
+ */
+class InMemoryECMMinerIntegrationTest extends ECMMinerIntegrationTest {
+
+    @Override
+    DAO createDAO(Session session) {
+        return new InMemoryDAO();
+    }
+
+    // there is no session, the entities are the ones saved
+    @Override
+    DAO reopen(DAO dao) {
+        return dao;
+    }
+
+    @Override
+    @Test
+    @DisplayName("Rankings maintained from the DAO should follow saves and deletes")
+    public void maintainedRankingsShouldFollowDAOChanges() throws IOException {
+        InMemoryDAO dao = new InMemoryDAO();
+        ECMMiner ecmMiner = new ECMMiner(dao);
+        MaintainedRankings rankings = new MaintainedRankings();
+        rankings.reload(dao);
+        dao.addListener(rankings);
+
+        Album album1 = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        Album album2 = new Album(2017, "ECM 12344", "Great");
+        Musician musician1 = new Musician("Keith Jarrett");
+        musician1.setAlbums(Sets.newHashSet(album1, album2));
+        Musician musician2 = new Musician("Jan Garbarek");
+        musician2.setAlbums(Sets.newHashSet(album2));
+        dao.createOrUpdate(musician1);
+        dao.createOrUpdate(musician2);
+
+        assertEquals(ecmMiner.mostProlificMusicians(2, -1, -1), rankings.mostProlificMusicians(2));
+        assertEquals(ecmMiner.busiestYears(2), rankings.busiestYears(2));
+
+        dao.delete(album2);
+
+        assertEquals(Lists.newArrayList(musician1), rankings.mostProlificMusicians(2));
+        assertEquals(Lists.newArrayList(1975), rankings.busiestYears(2));
+        dao.removeListener(rankings);
+    }
+}
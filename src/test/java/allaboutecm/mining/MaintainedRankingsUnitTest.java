@@ -0,0 +1,167 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.FetchPlan;
+import allaboutecm.model.Album;
+import allaboutecm.model.MusicalInstrument;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianInstrument;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MaintainedRankingsUnitTest {
+    private MaintainedRankings rankings;
+    private Album koln;
+    private Album bremen;
+    private Album mySong;
+
+    @BeforeEach
+    public void setUp() {
+        rankings = new MaintainedRankings();
+        koln = album(1L, 1975, "ECM 1064/65", "The Koln Concert");
+        bremen = album(2L, 1973, "ECM 1035/37", "Bremen Lausanne Concert");
+        mySong = album(3L, 1977, "ECM 1090", "My Song");
+    }
+
+    private Album album(Long id, int year, String recordNumber, String name) {
+        Album album = new Album(year, recordNumber, name);
+        album.setId(id);
+        return album;
+    }
+
+    private Musician musician(Long id, String name, Album... albums) throws IOException {
+        Musician musician = new Musician(name);
+        musician.setId(id);
+        musician.setAlbums(Sets.newHashSet(albums));
+        return musician;
+    }
+
+    @Test
+    @DisplayName("Saving an album again should move it in the rankings")
+    public void savingAnAlbumAgainShouldUpdateItsRankings() {
+        koln.setPrice(20);
+        bremen.setPrice(30);
+        rankings.saved(koln);
+        rankings.saved(bremen);
+        assertEquals(Lists.newArrayList(bremen, koln), rankings.mostExpensiveAlbums(2));
+
+        koln.setPrice(40);
+        rankings.saved(koln);
+
+        assertEquals(Lists.newArrayList(koln, bremen), rankings.mostExpensiveAlbums(2));
+    }
+
+    @Test
+    @DisplayName("Changing the release year of an album should move it to its new year")
+    public void changingReleaseYearShouldMoveTheAlbum() {
+        rankings.saved(koln);
+        rankings.saved(bremen);
+        rankings.saved(mySong);
+
+        bremen.setReleaseYear(1975);
+        rankings.saved(bremen);
+
+        List<Integer> years = rankings.busiestYears(5);
+        assertEquals(Lists.newArrayList(1975, 1977), years);
+    }
+
+    @Test
+    @DisplayName("Albums without rating should not be ranked")
+    public void albumsWithoutRatingShouldNotBeRanked() {
+        koln.setRating(4);
+        rankings.saved(koln);
+        rankings.saved(mySong);
+
+        assertEquals(Lists.newArrayList(koln), rankings.highestRatedAlbums(5));
+    }
+
+    @Test
+    @DisplayName("Deleting an album should remove it from the musicians playing on it")
+    public void deletingAnAlbumShouldUpdateProlificMusicians() throws IOException {
+        Musician keith = musician(10L, "Keith Jarrett", koln, bremen);
+        Musician jan = musician(11L, "Jan Garbarek", mySong);
+        rankings.saved(keith);
+        rankings.saved(jan);
+        assertEquals(Lists.newArrayList(keith, jan), rankings.mostProlificMusicians(2));
+
+        rankings.deleted(koln);
+        rankings.deleted(bremen);
+
+        assertEquals(Lists.newArrayList(jan), rankings.mostProlificMusicians(2));
+        assertEquals(Lists.newArrayList(1977), rankings.busiestYears(5));
+    }
+
+    @Test
+    @DisplayName("Musicians with the same number of albums should be ordered by name")
+    public void prolificTiesShouldBeOrderedByName() throws IOException {
+        Musician keith = musician(10L, "Keith Jarrett", koln);
+        Musician jan = musician(11L, "Jan Garbarek", mySong);
+        rankings.saved(keith);
+        rankings.saved(jan);
+
+        assertEquals(Lists.newArrayList(jan, keith), rankings.mostProlificMusicians(2));
+    }
+
+    @Test
+    @DisplayName("Deleting a musician instrument should only take away the instruments it added")
+    public void deletingMusicianInstrumentShouldSubtractItsInstruments() throws IOException {
+        Musician keith = musician(10L, "Keith Jarrett");
+        Musician jan = musician(11L, "Jan Garbarek");
+        MusicalInstrument piano = new MusicalInstrument("Piano");
+        MusicalInstrument sax = new MusicalInstrument("Saxophone");
+        MusicalInstrument flute = new MusicalInstrument("Flute");
+
+        MusicianInstrument keithPiano = new MusicianInstrument(keith, Sets.newHashSet(piano, sax));
+        keithPiano.setId(20L);
+        MusicianInstrument keithSax = new MusicianInstrument(keith, Sets.newHashSet(sax));
+        keithSax.setId(21L);
+        MusicianInstrument janSax = new MusicianInstrument(jan, Sets.newHashSet(sax, flute, piano));
+        janSax.setId(22L);
+        rankings.saved(keithPiano);
+        rankings.saved(keithSax);
+        rankings.saved(janSax);
+        assertEquals(Lists.newArrayList(jan, keith), rankings.mostTalentedMusicians(2));
+
+        rankings.deleted(keithPiano);
+        assertEquals(Lists.newArrayList(jan, keith), rankings.mostTalentedMusicians(2));
+
+        rankings.deleted(keithSax);
+        assertEquals(Lists.newArrayList(jan), rankings.mostTalentedMusicians(2));
+    }
+
+    @Test
+    @DisplayName("Entities that were never saved should be ignored")
+    public void unsavedEntitiesShouldBeIgnored() {
+        Album unsaved = new Album(1980, "ECM 1200", "Unsaved");
+        rankings.saved(unsaved);
+        rankings.deleted(unsaved);
+
+        assertTrue(rankings.bestSellerAlbums(5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Reloading should replace everything counted so far")
+    public void reloadShouldStartFromTheDAO() throws IOException {
+        rankings.saved(koln);
+        DAO dao = mock(DAO.class);
+        when(dao.loadAll(Album.class)).thenReturn(Sets.newHashSet(mySong));
+        when(dao.fetchAll(FetchPlan.MUSICIAN_ALBUMS))
+                .thenReturn(Sets.newHashSet(musician(10L, "Keith Jarrett", mySong)));
+        when(dao.fetchAll(FetchPlan.MUSICIAN_INSTRUMENTS)).thenReturn(Sets.newHashSet());
+
+        rankings.reload(dao);
+
+        assertEquals(Lists.newArrayList(1977), rankings.busiestYears(5));
+        assertEquals(1, rankings.mostProlificMusicians(5).size());
+    }
+}
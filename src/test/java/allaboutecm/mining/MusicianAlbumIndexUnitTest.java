@@ -0,0 +1,104 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicianAlbumIndexUnitTest {
+    private Musician keith;
+    private Musician jan;
+    private Musician charlie;
+    private Musician paul;
+    private Album album1;
+    private Album album2;
+    private Album album3;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        keith = new Musician("Keith Jarrett");
+        jan = new Musician("Jan Garbarek");
+        charlie = new Musician("Charlie Haden");
+        paul = new Musician("Paul Motian");
+
+        album1 = new Album(1975, "ECM 1064/65", "The Koln Concert");
+        album2 = new Album(1977, "ECM 1090", "My Song");
+        album3 = new Album(1980, "ECM 1170", "Nude Ants");
+        album1.setFeaturedMusicians(Lists.newArrayList(keith));
+        album2.setFeaturedMusicians(Lists.newArrayList(keith, jan, charlie));
+        album3.setFeaturedMusicians(Lists.newArrayList(keith, jan, paul));
+    }
+
+    @Test
+    @DisplayName("Musicians should get dense ids in the order they are first featured")
+    public void shouldAssignDenseIdsInFirstSeenOrder() {
+        MusicianAlbumIndex index = MusicianAlbumIndex.build(Lists.newArrayList(album1, album2, album3));
+
+        assertEquals(4, index.musicianCount());
+        assertEquals(3, index.albumCount());
+        assertEquals(0, index.idOf(keith));
+        assertEquals(1, index.idOf(jan));
+        assertEquals(2, index.idOf(charlie));
+        assertEquals(3, index.idOf(paul));
+    }
+
+    @Test
+    @DisplayName("Posting lists should hold every album featuring the musician")
+    public void postingListsShouldHoldTheAlbumsOfAMusician() {
+        MusicianAlbumIndex index = MusicianAlbumIndex.build(Lists.newArrayList(album1, album2, album3));
+
+        assertArrayEquals(new int[]{0, 1, 2}, index.albumsOf(index.idOf(keith)));
+        assertArrayEquals(new int[]{1, 2}, index.albumsOf(index.idOf(jan)));
+        assertArrayEquals(new int[]{2}, index.albumsOf(index.idOf(paul)));
+    }
+
+    @Test
+    @DisplayName("Should count every distinct collaborator once")
+    public void shouldCountDistinctCollaborators() {
+        MusicianAlbumIndex index = MusicianAlbumIndex.build(Lists.newArrayList(album1, album2, album3));
+
+        int[] counts = index.collaboratorCounts();
+        assertEquals(3, counts[index.idOf(keith)]);
+        assertEquals(3, counts[index.idOf(jan)]);
+        assertEquals(2, counts[index.idOf(charlie)]);
+        assertEquals(2, counts[index.idOf(paul)]);
+    }
+
+    @Test
+    @DisplayName("Counting collaborators again or range by range on the same thread should give the same counts")
+    public void repeatedCollaboratorCountsShouldAgree() {
+        MusicianAlbumIndex index = MusicianAlbumIndex.build(Lists.newArrayList(album1, album2, album3));
+
+        int[] counts = index.collaboratorCounts();
+        assertArrayEquals(counts, index.collaboratorCounts());
+        int middle = index.musicianCount() / 2;
+        assertArrayEquals(counts, Ints.concat(index.collaboratorCounts(0, middle),
+                index.collaboratorCounts(middle, index.musicianCount())));
+    }
+
+    @Test
+    @DisplayName("A musician listed twice in an album should not collaborate with himself")
+    public void duplicatedMusicianInLineupShouldBeCountedOnce() throws IOException {
+        album1.setFeaturedMusicians(Lists.newArrayList(keith, new Musician("Keith Jarrett"), jan));
+        MusicianAlbumIndex index = MusicianAlbumIndex.build(Lists.newArrayList(album1));
+
+        assertEquals(2, index.musicianCount());
+        assertArrayEquals(new int[]{0, 1}, index.lineupOf(0));
+        assertArrayEquals(new int[]{1, 1}, index.collaboratorCounts());
+    }
+
+    @Test
+    @DisplayName("Musician not featured in any album should not have an id")
+    public void unknownMusicianShouldNotHaveAnId() throws IOException {
+        MusicianAlbumIndex index = MusicianAlbumIndex.build(Lists.newArrayList(album1));
+
+        assertEquals(-1, index.idOf(new Musician("Manfred Eicher")));
+    }
+}
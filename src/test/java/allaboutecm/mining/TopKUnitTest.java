@@ -0,0 +1,109 @@
+package allaboutecm.mining;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKUnitTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {-5, 0})
+    @DisplayName("k should be bigger than 0")
+    public void kHasToBeMoreThanZero(int k) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new TopK<String>(k));
+        assertEquals("k should be more than 0", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should return every element from highest to lowest score when k is bigger than the input")
+    public void shouldReturnEverythingWhenKIsBiggerThanInput() {
+        TopK<String> topK = new TopK<>(10);
+        topK.offer("b", 2);
+        topK.offer("c", 1);
+        topK.offer("a", 3);
+
+        assertEquals(3, topK.size());
+        assertEquals(Lists.newArrayList("a", "b", "c"), topK.toList());
+        assertArrayEquals(new double[]{3, 2, 1}, topK.toScores());
+    }
+
+    @Test
+    @DisplayName("Should only keep the k highest scores")
+    public void shouldOnlyKeepTheKHighestScores() {
+        TopK<Integer> topK = new TopK<>(3);
+        for (int i = 0; i < 100; i++) {
+            topK.offer(i, i);
+        }
+        assertEquals(Lists.newArrayList(99, 98, 97), topK.toList());
+    }
+
+    @Test
+    @DisplayName("Elements with the same score should keep the order they were offered in")
+    public void tiesShouldKeepOfferOrder() {
+        TopK<String> topK = new TopK<>(3);
+        topK.offer("first", 1);
+        topK.offer("second", 1);
+        topK.offer("best", 5);
+        topK.offer("third", 1);
+        topK.offer("fourth", 1);
+
+        assertEquals(Lists.newArrayList("best", "first", "second"), topK.toList());
+    }
+
+    @Test
+    @DisplayName("Tie breaker should decide the order of elements with the same score")
+    public void tieBreakerShouldOrderTies() {
+        TopK<String> topK = new TopK<>(2, Comparator.naturalOrder());
+        topK.offer("c", 1);
+        topK.offer("b", 1);
+        topK.offer("a", 1);
+
+        assertEquals(Lists.newArrayList("a", "b"), topK.toList());
+    }
+
+    @Test
+    @DisplayName("Should give the same result as sorting the whole input")
+    public void shouldMatchAFullSort() {
+        Random random = new Random(42);
+        List<double[]> input = Lists.newArrayList();
+        TopK<Integer> topK = new TopK<>(50);
+        for (int i = 0; i < 10000; i++) {
+            double score = random.nextInt(500);
+            input.add(new double[]{i, score});
+            topK.offer(i, score);
+        }
+        // List.sort is stable, so ties stay in input order
+        input.sort((a, b) -> Double.compare(b[1], a[1]));
+
+        List<Integer> expected = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            expected.add((int) input.get(i)[0]);
+        }
+        assertEquals(expected, topK.toList());
+    }
+
+    @Test
+    @DisplayName("Merging heaps of consecutive ranges should give the same result as one heap")
+    public void mergingRangesShouldMatchASingleHeap() {
+        Random random = new Random(7);
+        TopK<Integer> whole = new TopK<>(20);
+        TopK<Integer> first = new TopK<>(20, null, 0);
+        TopK<Integer> second = new TopK<>(20, null, 500);
+        for (int i = 0; i < 1000; i++) {
+            double score = random.nextInt(30);
+            whole.offer(i, score);
+            (i < 500 ? first : second).offer(i, score);
+        }
+        first.addAll(second);
+
+        assertEquals(whole.toList(), first.toList());
+    }
+}
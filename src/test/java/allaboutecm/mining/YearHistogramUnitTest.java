@@ -0,0 +1,87 @@
+package allaboutecm.mining;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Calendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YearHistogramUnitTest {
+
+    @Test
+    @DisplayName("Should count the albums of every year")
+    public void shouldCountAlbumsPerYear() {
+        YearHistogram histogram = new YearHistogram();
+        histogram.add(1975);
+        histogram.add(1975);
+        histogram.add(2017, 3);
+
+        assertEquals(2, histogram.count(1975));
+        assertEquals(3, histogram.count(2017));
+        assertEquals(0, histogram.count(1990));
+    }
+
+    @Test
+    @DisplayName("Busiest years should be returned from most to least albums, earliest year first for ties")
+    public void busiestYearsShouldBreakTiesByYear() {
+        YearHistogram histogram = new YearHistogram(2020);
+        histogram.add(2019, 2);
+        histogram.add(1980, 2);
+        histogram.add(2000, 5);
+        histogram.add(1971, 1);
+
+        assertEquals(Lists.newArrayList(2000, 1980, 2019), histogram.busiestYears(3));
+        assertEquals(Lists.newArrayList(2000, 1980, 2019, 1971), histogram.busiestYears(10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1970, 0, 3000})
+    @DisplayName("Years outside of the album release years should not be accepted")
+    public void yearsOutOfRangeShouldNotBeAccepted(int year) {
+        YearHistogram histogram = new YearHistogram();
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.add(year));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1970, 0, 3000})
+    @DisplayName("Years outside of the album release years should be skipped when added if covered")
+    public void yearsOutOfRangeShouldBeSkipped(int year) {
+        YearHistogram histogram = new YearHistogram(2000);
+
+        assertFalse(histogram.covers(year));
+        assertFalse(histogram.addIfCovered(year, 1));
+        assertTrue(histogram.addIfCovered(1999, 1));
+        assertEquals(Lists.newArrayList(1999), histogram.busiestYears(5));
+    }
+
+    @Test
+    @DisplayName("Current year should be accepted by default")
+    public void currentYearShouldBeAccepted() {
+        YearHistogram histogram = new YearHistogram();
+        int year = Calendar.getInstance().get(Calendar.YEAR);
+        histogram.add(year);
+
+        assertEquals(Lists.newArrayList(year), histogram.busiestYears(1));
+    }
+
+    @Test
+    @DisplayName("Adding a histogram should add its counts year by year")
+    public void addAllShouldAddCounts() {
+        YearHistogram histogram = new YearHistogram(2000);
+        YearHistogram other = new YearHistogram(2000);
+        histogram.add(1975);
+        other.add(1975);
+        other.add(1999);
+
+        histogram.addAll(other);
+
+        assertEquals(2, histogram.count(1975));
+        assertEquals(1, histogram.count(1999));
+        assertThrows(IllegalArgumentException.class, () -> histogram.addAll(new YearHistogram(2001)));
+    }
+}